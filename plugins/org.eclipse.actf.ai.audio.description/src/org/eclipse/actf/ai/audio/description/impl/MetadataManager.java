@@ -21,13 +21,13 @@ import org.eclipse.actf.ai.audio.io.AudioPipeListener;
 import org.eclipse.actf.ai.audio.io.IAudioPipe;
 import org.eclipse.actf.ai.audio.io.IAudioReader;
 import org.eclipse.actf.ai.audio.io.IAudioWriter;
+import org.eclipse.actf.ai.fennec.DocumentAnalysisService;
 import org.eclipse.actf.ai.fennec.treemanager.ISoundControl;
 import org.eclipse.actf.ai.fennec.treemanager.IVideoControl;
 import org.eclipse.actf.ai.internal.audio.description.DescriptionPlugin;
 import org.eclipse.actf.ai.navigator.IMediaControl.IHandle;
 import org.eclipse.actf.ai.voice.IVoiceEventListener;
 import org.eclipse.actf.model.dom.dombycom.AnalyzedResult;
-import org.eclipse.actf.model.dom.dombycom.INodeEx;
 import org.eclipse.actf.model.dom.dombycom.INodeExVideo;
 import org.eclipse.actf.model.ui.util.ModelServiceUtils;
 import org.eclipse.swt.widgets.Display;
@@ -180,16 +180,13 @@ public class MetadataManager implements IVoiceEventListener, AudioPipeListener {
 	}
 
 	private void analyze() {
-		// TODO tentative code
-		analyzedResult = new AnalyzedResult();
+		// The result is shared with the Fennec service of the page.
 		Document doc = ModelServiceUtils.getActiveModelService()
 				.getLiveDocument();
 		Node root = null;
 		if (doc != null)
-			root = doc.getFirstChild();
-		if (root instanceof INodeEx) {
-			analyzedResult = ((INodeEx) root).analyze(analyzedResult);
-		}
+			root = doc.getDocumentElement();
+		analyzedResult = DocumentAnalysisService.getAnalyzedResult(root);
 	}
 
 	private void processPause() {
@@ -285,7 +282,6 @@ public class MetadataManager implements IVoiceEventListener, AudioPipeListener {
 	}
 
 	// TODO tentative from here
-	// TODO cache
 	public boolean pauseMedia() {
 		analyze();
 		INodeExVideo[] videos = analyzedResult.getVideoNodes();
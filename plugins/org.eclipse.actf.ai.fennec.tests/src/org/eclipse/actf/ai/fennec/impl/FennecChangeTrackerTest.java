@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+
+public class FennecChangeTrackerTest extends TestCase {
+    private FennecChangeTracker tracker;
+
+    private Document doc;
+
+    private Element body;
+
+    private Element div;
+
+    private Element span;
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        body = doc.createElement("BODY");
+        doc.appendChild(body);
+        div = doc.createElement("DIV");
+        body.appendChild(div);
+        span = doc.createElement("SPAN");
+        body.appendChild(span);
+        tracker = new FennecChangeTracker(doc);
+    }
+
+    public void testMarkDirty() {
+        int stamp = tracker.getStamp();
+        assertFalse(tracker.isChanged(div, stamp));
+        tracker.markDirty(div);
+        assertTrue(tracker.isChanged(div, stamp));
+        // The ancestors are also marked.
+        assertTrue(tracker.isChanged(body, stamp));
+        assertFalse(tracker.isChanged(span, stamp));
+        assertFalse(tracker.isChanged(div, tracker.getStamp()));
+    }
+
+    public void testMarkAllDirty() {
+        int stamp = tracker.getStamp();
+        int generation = tracker.getGeneration();
+        tracker.markAllDirty();
+        assertEquals(generation + 1, tracker.getGeneration());
+        assertTrue(tracker.isChanged(span, stamp));
+        assertTrue(tracker.isChanged(null, stamp));
+        assertFalse(tracker.isChanged(span, tracker.getStamp()));
+    }
+
+    public void testElementCountCheck() {
+        int stamp = tracker.getStamp();
+        long now = System.currentTimeMillis();
+        span.appendChild(doc.createElement("B"));
+        // The check is not due yet.
+        tracker.check(now);
+        assertFalse(tracker.isChanged(div, stamp));
+        tracker.check(now + FennecChangeTracker.CHECK_INTERVAL);
+        assertTrue(tracker.isChanged(div, stamp));
+
+        stamp = tracker.getStamp();
+        tracker.check(now + 2 * FennecChangeTracker.CHECK_INTERVAL);
+        assertFalse(tracker.isChanged(div, stamp));
+    }
+
+    public void testMaxAge() {
+        int stamp = tracker.getStamp();
+        long now = System.currentTimeMillis();
+        tracker.check(now + FennecChangeTracker.MAX_AGE / 2);
+        assertFalse(tracker.isChanged(span, stamp));
+        tracker.check(now + FennecChangeTracker.MAX_AGE);
+        assertTrue(tracker.isChanged(span, stamp));
+    }
+}
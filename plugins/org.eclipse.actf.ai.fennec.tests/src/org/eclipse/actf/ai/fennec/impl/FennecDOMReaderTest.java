@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.ai.xmlstore.IXMLInfo;
+import org.eclipse.actf.ai.xmlstore.XMLStoreException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
+
+
+// These tests must run on the UI thread, as the plug-in tests do.
+public class FennecDOMReaderTest extends TestCase {
+    private static class Info implements IXMLInfo {
+        Node rootNode;
+
+        public Node getRootNode() {
+            return rootNode;
+        }
+
+        public void setContentHandler(ContentHandler handler) {
+        }
+
+        public void startSAX() {
+        }
+
+        public void reset() {
+        }
+
+        public String getDocumentation() {
+            return null;
+        }
+
+        public boolean isUserEntry() {
+            return false;
+        }
+
+        public int getPriority() {
+            return 0;
+        }
+    }
+
+    private Info info;
+
+    protected void setUp() throws Exception {
+        info = new Info();
+        info.rootNode = newFennec();
+    }
+
+    private static Document newFennec() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().newDocument();
+        String ns = FennecDOMReader.Fennec_NAMESPACE_URI;
+        Element fennec = doc.createElementNS(ns, FennecDOMReader.Fennec_DOCUMENT_ELEMENT_NAME);
+        doc.appendChild(fennec);
+        fennec.appendChild(doc.createElementNS(ns, "h1"));
+        return doc;
+    }
+
+    public void testSecondServiceHitsCache() throws Exception {
+        // Each service has its own reader.
+        FennecDescription.Top desc = new FennecDOMReader(null).parseDescription(info);
+        assertNotNull(desc);
+        assertSame(desc, new FennecDOMReader(null).parseDescription(info));
+    }
+
+    public void testModifiedFile() throws Exception {
+        FennecDescription.Top desc = new FennecDOMReader(null).parseDescription(info);
+        info.rootNode = newFennec();
+        FennecDescription.Top desc2 = new FennecDOMReader(null).parseDescription(info);
+        assertNotSame(desc, desc2);
+        assertSame(desc2, new FennecDOMReader(null).parseDescription(info));
+    }
+
+    public void testOtherThreadDoesNotShare() throws Exception {
+        final FennecDescription.Top desc = new FennecDOMReader(null).parseDescription(info);
+        final FennecDescription.Top[] result = new FennecDescription.Top[1];
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    result[0] = new FennecDOMReader(null).parseDescription(info);
+                } catch (XMLStoreException e) {
+                }
+            }
+        };
+        t.start();
+        t.join();
+        assertNotNull(result[0]);
+        assertNotSame(desc, result[0]);
+    }
+}
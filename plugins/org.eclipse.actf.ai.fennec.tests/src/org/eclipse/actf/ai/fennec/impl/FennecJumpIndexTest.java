@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.ai.fennec.treemanager.IndexedProposition;
+
+
+public class FennecJumpIndexTest extends TestCase {
+    private static final int[][] PATHS = { {}, { 0 }, { 0, 2 }, { 0, 2, 1 }, { 1 }, { 3, 0 } };
+
+    private FennecJumpIndex index;
+
+    protected void setUp() throws Exception {
+        index = new FennecJumpIndex(new IndexedProposition(null));
+        for (int i = 0; i < PATHS.length; i++) {
+            index.add(PATHS[i]);
+        }
+    }
+
+    public void testCompare() {
+        for (int i = 0; i < PATHS.length; i++) {
+            assertEquals(0, FennecJumpIndex.compare(PATHS[i], PATHS[i]));
+            for (int j = i + 1; j < PATHS.length; j++) {
+                assertTrue(FennecJumpIndex.compare(PATHS[i], PATHS[j]) < 0);
+                assertTrue(FennecJumpIndex.compare(PATHS[j], PATHS[i]) > 0);
+            }
+        }
+    }
+
+    public void testFindNext() {
+        assertSame(PATHS[1], index.findNext(PATHS[0]));
+        assertSame(PATHS[3], index.findNext(new int[] { 0, 2, 0 }));
+        assertSame(PATHS[4], index.findNext(PATHS[3]));
+        assertSame(PATHS[5], index.findNext(new int[] { 2 }));
+        assertNull(index.findNext(PATHS[5]));
+    }
+
+    public void testFindPrevious() {
+        assertNull(index.findPrevious(PATHS[0]));
+        assertSame(PATHS[2], index.findPrevious(PATHS[3]));
+        assertSame(PATHS[3], index.findPrevious(new int[] { 0, 3 }));
+        assertSame(PATHS[5], index.findPrevious(new int[] { 4 }));
+    }
+
+    public void testGeneration() {
+        assertFalse(index.isValid(0));
+        index.setGeneration(3);
+        assertTrue(index.isValid(3));
+        assertFalse(index.isValid(4));
+        index.reset();
+        assertFalse(index.isValid(3));
+        assertEquals(0, index.size());
+        assertNull(index.findNext(PATHS[0]));
+    }
+
+    public void testReplace() {
+        FennecJumpIndex part = new FennecJumpIndex(index.getProposition());
+        int[] p1 = { 0, 1 };
+        int[] p2 = { 0, 2, 5 };
+        part.add(p1);
+        part.add(p2);
+        index.replace(new int[] { 0 }, part);
+        assertEquals(5, index.size());
+        assertSame(p1, index.findNext(PATHS[0]));
+        assertSame(p2, index.findNext(p1));
+        assertSame(PATHS[4], index.findNext(p2));
+        assertSame(PATHS[0], index.findPrevious(p1));
+
+        // The subtree without entries.
+        index.replace(new int[] { 3 }, new FennecJumpIndex(index.getProposition()));
+        assertEquals(4, index.size());
+        assertNull(index.findNext(PATHS[4]));
+    }
+
+    public void testItemChanged() {
+        // The changes before the index is complete are ignored.
+        index.itemChanged(PATHS[1]);
+        assertEquals(0, index.takeChangedPaths().size());
+
+        index.setGeneration(1);
+        index.itemChanged(PATHS[1]);
+        assertEquals(1, index.takeChangedPaths().size());
+        assertEquals(0, index.takeChangedPaths().size());
+
+        for (int i = 0; i <= 64; i++) {
+            index.itemChanged(PATHS[1]);
+        }
+        // Too many changes. The index is filled again.
+        assertFalse(index.isValid(1));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.model.dom.dombycom.INodeEx;
+import org.eclipse.swt.graphics.Rectangle;
+import org.w3c.dom.Node;
+
+
+public class FennecLayoutIndexTest extends TestCase {
+    // The current layout of the page.
+    private final HashMap<Object, Rectangle> layout = new HashMap<Object, Rectangle>();
+
+    // A node of the browser under the parent, which returns its current layout.
+    private INodeEx newNode(final INodeEx parent) {
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getLocation"))
+                    return layout.get(proxy);
+                if (name.equals("getParentNode"))
+                    return parent;
+                if (name.equals("equals"))
+                    return Boolean.valueOf(proxy == args[0]);
+                if (name.equals("hashCode"))
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                return null;
+            }
+        };
+        return (INodeEx) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { INodeEx.class,
+                Node.class }, handler);
+    }
+
+    public void testLocationIsKeptInGeneration() {
+        FennecLayoutIndex index = new FennecLayoutIndex(3);
+        assertEquals(3, index.getGeneration());
+        INodeEx a = newNode(null);
+        INodeEx b = newNode(null);
+        layout.put(a, new Rectangle(0, 20, 100, 16));
+        assertEquals(20, index.getLocation(a).y);
+        assertNull(index.getLocation(b));
+
+        // The page is scrolled without a change of the tree.
+        layout.put(a, new Rectangle(0, 0, 100, 16));
+        layout.put(b, new Rectangle(0, 40, 100, 16));
+        assertEquals(20, index.getLocation(a).y);
+        assertNull(index.getLocation(b));
+
+        // A new generation sees the new layout.
+        index = new FennecLayoutIndex(4);
+        assertEquals(0, index.getLocation(a).y);
+        assertEquals(40, index.getLocation(b).y);
+    }
+
+    public void testNodeChanged() {
+        INodeEx body = newNode(null);
+        INodeEx div = newNode(body);
+        INodeEx input = newNode(div);
+        INodeEx text = newNode(input);
+        INodeEx other = newNode(body);
+        INodeEx[] nodes = { body, div, input, text, other };
+        FennecLayoutIndex index = new FennecLayoutIndex(0);
+        for (int i = 0; i < nodes.length; i++) {
+            layout.put(nodes[i], new Rectangle(0, i * 20, 100, 16));
+            index.getLocation(nodes[i]);
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            layout.put(nodes[i], new Rectangle(10, i * 20, 100, 16));
+        }
+        index.nodeChanged(input);
+        // The node, the ancestors and the descendants are fetched again.
+        assertEquals(10, index.getLocation(body).x);
+        assertEquals(10, index.getLocation(div).x);
+        assertEquals(10, index.getLocation(input).x);
+        assertEquals(10, index.getLocation(text).x);
+        assertEquals(0, index.getLocation(other).x);
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.Rectangle;
+
+
+public class FennecLineIndexTest extends TestCase {
+    private FennecLineIndex index;
+
+    private static Rectangle line(int n, int x) {
+        return new Rectangle(x, n * 20, 10, 16);
+    }
+
+    protected void setUp() throws Exception {
+        index = new FennecLineIndex();
+        index.add(new int[] { 0, 0 }, line(0, 0));
+        index.add(new int[] { 0, 1 }, line(0, 20));
+        index.add(new int[] { 1, 0 }, line(1, 0));
+        index.add(new int[] { 1, 1 }, null);
+        index.add(new int[] { 1, 2 }, line(1, 40));
+        index.add(new int[] { 2 }, line(2, 0));
+    }
+
+    public void testLines() {
+        assertEquals(6, index.size());
+        assertEquals(3, index.getLineCount());
+        assertEquals(0, index.getLine(1));
+        // An item without a location joins the current line.
+        assertEquals(1, index.getLine(3));
+        assertEquals(2, index.getLine(5));
+        assertEquals(1, index.getLineStart(1)[0]);
+        assertEquals(2, index.getLineEnd(1)[1]);
+    }
+
+    public void testIndexOf() {
+        assertEquals(-1, index.indexOf(new int[] {}));
+        assertEquals(0, index.indexOf(new int[] { 0, 0 }));
+        assertEquals(1, index.indexOf(new int[] { 0, 1, 5 }));
+        assertEquals(5, index.indexOf(new int[] { 3 }));
+    }
+
+    public void testReplaceSubtree() {
+        FennecLineIndex part = new FennecLineIndex();
+        part.add(new int[] { 1, 0 }, line(1, 0));
+        part.add(new int[] { 1, 1, 0 }, line(2, 0));
+        part.add(new int[] { 1, 1, 1 }, line(3, 0));
+        part.add(new int[] { 1, 4 }, line(3, 20));
+        index.replace(new int[] { 1 }, part);
+        assertEquals(7, index.size());
+        assertEquals(5, index.getLineCount());
+        assertEquals(3, index.getLine(index.indexOf(new int[] { 1, 4 })));
+        assertEquals(1, index.getLineEnd(0)[1]);
+        assertEquals(4, index.getLine(index.indexOf(new int[] { 2 })));
+    }
+
+    public void testReplaceLeaf() {
+        index.replace(new int[] { 1, 1 }, new FennecLineIndex());
+        assertEquals(5, index.size());
+        assertEquals(2, index.indexOf(new int[] { 1, 1 }));
+
+        FennecLineIndex part = new FennecLineIndex();
+        part.add(new int[] { 1, 1 }, line(4, 0));
+        index.replace(new int[] { 1, 1 }, part);
+        assertEquals(6, index.size());
+        assertEquals(3, index.indexOf(new int[] { 1, 1 }));
+        assertEquals(5, index.getLineCount());
+    }
+
+    public void testGeneration() {
+        assertFalse(index.isValid(0));
+        // The changes before the index is complete are ignored.
+        index.itemChanged(new int[] { 1 });
+        assertEquals(0, index.takeChangedPaths().size());
+
+        index.setGeneration(2);
+        assertTrue(index.isValid(2));
+        index.itemChanged(new int[] { 1 });
+        assertEquals(1, index.takeChangedPaths().size());
+
+        index.reset();
+        assertFalse(index.isValid(2));
+        assertEquals(0, index.size());
+        assertEquals(0, index.getLineCount());
+    }
+}
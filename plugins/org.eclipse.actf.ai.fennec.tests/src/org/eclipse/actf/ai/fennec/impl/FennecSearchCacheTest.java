@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.util.vocab.IEvalTarget;
+import org.eclipse.actf.util.vocab.IProposition;
+
+
+public class FennecSearchCacheTest extends TestCase {
+    private final IProposition proposition = new IProposition() {
+        public boolean eval(IEvalTarget node) {
+            return false;
+        }
+    };
+
+    public void testCoversForward() {
+        FennecSearchCache.Search s = new FennecSearchCache.Search(new int[] { 1 }, null, null, new int[] { 2, 0 });
+        assertFalse(s.covers(new int[] { 0, 5 }, false));
+        assertTrue(s.covers(new int[] { 1 }, false));
+        assertTrue(s.covers(new int[] { 1, 3, 4 }, false));
+        assertTrue(s.covers(new int[] { 2 }, false));
+        assertFalse(s.covers(new int[] { 2, 0 }, false));
+        assertFalse(s.covers(new int[] { 3 }, false));
+    }
+
+    public void testCoversBackward() {
+        FennecSearchCache.Search s = new FennecSearchCache.Search(new int[] { 2 }, null, null, new int[] { 1 });
+        assertFalse(s.covers(new int[] { 2, 0 }, true));
+        assertTrue(s.covers(new int[] { 2 }, true));
+        assertTrue(s.covers(new int[] { 1, 0 }, true));
+        assertFalse(s.covers(new int[] { 1 }, true));
+    }
+
+    public void testStamp() {
+        FennecSearchCache cache = new FennecSearchCache();
+        FennecSearchCache.Search s = new FennecSearchCache.Search(new int[] {}, null, null, new int[] { 0 });
+        cache.put(proposition, false, 1, s);
+        assertSame(s, cache.get(proposition, false, 1));
+        assertNull(cache.get(proposition, true, 1));
+        assertNull(cache.get(proposition, false, 2));
+        cache.put(proposition, true, 2, s);
+        assertNull(cache.get(proposition, false, 1));
+        assertSame(s, cache.get(proposition, true, 2));
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+
+public class TableImplTest extends TestCase {
+    private Document doc;
+
+    private Element table;
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        table = doc.createElement("TABLE");
+        doc.appendChild(table);
+    }
+
+    private Element add(Element parent, String name) {
+        Element e = doc.createElement(name);
+        parent.appendChild(e);
+        return e;
+    }
+
+    private Element addCell(Element tr, String rowSpan, String colSpan) {
+        Element td = add(tr, "TD");
+        if (rowSpan != null)
+            td.setAttribute("rowspan", rowSpan);
+        if (colSpan != null)
+            td.setAttribute("colspan", colSpan);
+        return td;
+    }
+
+    private void assertCovered(TableImpl t, Element cell, int row, int column) {
+        TableCellImpl slot = t.getCell(row, column);
+        assertNotNull(slot);
+        assertSame(cell, slot.getOrigin().getElement());
+    }
+
+    public void testRowSpanClippedToGroup() {
+        Element thead = add(table, "THEAD");
+        Element head = addCell(add(thead, "TR"), "3", null);
+        Element tbody = add(table, "TBODY");
+        Element tr1 = add(tbody, "TR");
+        Element body = addCell(tr1, null, null);
+        addCell(add(tbody, "TR"), null, null);
+
+        TableImpl t = new TableImpl(null, table);
+        assertEquals(3, t.getRowSize());
+        assertEquals(1, t.getColumnSize());
+        assertEquals(1, t.getCell(head).getRowSpan());
+        assertCovered(t, body, 1, 0);
+    }
+
+    public void testRowSpanZero() {
+        Element tbody = add(table, "TBODY");
+        Element tr = add(tbody, "TR");
+        Element zero = addCell(tr, "0", null);
+        addCell(tr, null, null);
+        for (int i = 0; i < 3; i++) {
+            addCell(add(tbody, "TR"), null, null);
+        }
+        add(add(add(table, "TFOOT"), "TR"), "TD");
+
+        TableImpl t = new TableImpl(null, table);
+        assertEquals(5, t.getRowSize());
+        assertEquals(4, t.getCell(zero).getRowSpan());
+        for (int r = 0; r < 4; r++) {
+            assertCovered(t, zero, r, 0);
+        }
+        // The cells of the following rows are moved to the right.
+        assertEquals(1, t.getCell(3, 1).getColumn());
+        assertNotSame(zero, t.getCell(4, 0).getOrigin().getElement());
+    }
+
+    public void testHugeSpans() {
+        Element tr = add(table, "TR");
+        Element big = addCell(tr, "65534", "100000");
+        addCell(add(table, "TR"), null, null);
+
+        TableImpl t = new TableImpl(null, table);
+        // No row is added below the last TR element.
+        assertEquals(2, t.getRowSize());
+        assertEquals(2, t.getCell(big).getRowSpan());
+        assertEquals(1000, t.getCell(big).getColSpan());
+        assertEquals(1001, t.getColumnSize());
+        assertCovered(t, big, 1, 999);
+    }
+
+    public void testDirectRowsBetweenGroups() {
+        Element tr0 = add(table, "TR");
+        Element direct = addCell(tr0, "5", null);
+        add(table, "TR");
+        Element tbody = add(table, "TBODY");
+        Element body = addCell(add(tbody, "TR"), null, null);
+
+        TableImpl t = new TableImpl(null, table);
+        assertEquals(3, t.getRowSize());
+        assertEquals(2, t.getCell(direct).getRowSpan());
+        assertCovered(t, body, 2, 0);
+        assertNull(t.getCell(3, 0));
+    }
+
+    public void testInvalidSpans() {
+        Element tr = add(table, "TR");
+        Element a = addCell(tr, "-1", "x");
+        Element b = addCell(tr, "", "0");
+
+        TableImpl t = new TableImpl(null, table);
+        assertEquals(1, t.getCell(a).getRowSpan());
+        assertEquals(1, t.getCell(a).getColSpan());
+        assertEquals(1, t.getCell(b).getColSpan());
+        assertCovered(t, b, 0, 1);
+    }
+}
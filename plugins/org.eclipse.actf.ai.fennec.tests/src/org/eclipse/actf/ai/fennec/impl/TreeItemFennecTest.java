@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+
+
+public class TreeItemFennecTest extends TestCase {
+    private static TreeItemFennec newItem(ITreeItem parent) {
+        return TreeItemFennec.newTreeItem(null, parent, null);
+    }
+
+    // Creates a chain of items under the parent and returns the last one.
+    private static TreeItemFennec chain(TreeItemFennec parent, int length) {
+        TreeItemFennec item = parent;
+        for (int i = 0; i < length; i++) {
+            TreeItemFennec c = newItem(item);
+            item.setChildItems(new ITreeItem[] { c });
+            item = c;
+        }
+        return item;
+    }
+
+    public void testDepth() {
+        TreeItemFennec root = newItem(null);
+        TreeItemFennec leaf = chain(root, 5);
+        assertEquals(0, root.getDepth());
+        assertEquals(5, leaf.getDepth());
+        assertEquals(4, ((TreeItemFennec) leaf.getParent()).getDepth());
+    }
+
+    public void testMoveToAnotherLevel() {
+        TreeItemFennec root = newItem(null);
+        TreeItemFennec a = chain(root, 1);
+        TreeItemFennec leaf = chain(a, 3);
+        assertEquals(4, leaf.getDepth());
+
+        TreeItemFennec deep = chain(root, 10);
+        a.forceParent(deep);
+        deep.setChildItems(new ITreeItem[] { a });
+        assertEquals(11, a.getDepth());
+        assertEquals(14, leaf.getDepth());
+        assertEquals(14, TreeItemFennec.depthOf(leaf));
+    }
+
+    public void testDeepChainHasNoRecursion() {
+        TreeItemFennec root = newItem(null);
+        TreeItemFennec a = chain(root, 1);
+        TreeItemFennec leaf = chain(a, 100000);
+        a.forceParent(null);
+        assertEquals(100000, leaf.getDepth());
+    }
+}
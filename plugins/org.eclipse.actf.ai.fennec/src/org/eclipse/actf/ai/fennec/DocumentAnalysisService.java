@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.actf.model.dom.dombycom.AnalyzedResult;
+import org.eclipse.actf.model.dom.dombycom.INodeEx;
+import org.w3c.dom.Node;
+
+/**
+ * This class shares the {@link AnalyzedResult} of a document among its
+ * consumers, e.g. the Fennec services and the audio description. The result
+ * is computed at the first request for the document, and it is kept until
+ * {@link #reanalyze(Node)} or {@link #invalidate(Node)} is called for the
+ * document. The Fennec service invalidates the result when the whole
+ * document may have changed, but nothing reports the other changes of the
+ * page, so a result is also discarded when it gets older than
+ * {@link #MAX_AGE}. Only the results of the recently analyzed documents are
+ * kept. The analysis accesses the live DOM, so the methods must be called
+ * on the UI thread.
+ */
+public class DocumentAnalysisService {
+	/**
+	 * The time in milliseconds for which a cached result is reused.
+	 */
+	public static final long MAX_AGE = 10000;
+
+	private static final int MAX_ENTRIES = 4;
+
+	private static class CachedResult {
+		final AnalyzedResult result;
+
+		final long time;
+
+		CachedResult(AnalyzedResult result) {
+			this.result = result;
+			this.time = System.currentTimeMillis();
+		}
+	}
+
+	private static final Map<Node, CachedResult> results = new LinkedHashMap<Node, CachedResult>(8, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<Node, CachedResult> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static int analysisCount;
+
+	private DocumentAnalysisService() {
+	}
+
+	private static AnalyzedResult analyze(Node root) {
+		AnalyzedResult result = new AnalyzedResult();
+		if (root instanceof INodeEx) {
+			result = ((INodeEx) root).analyze(result);
+			analysisCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * @param root
+	 *            the document element of the document.
+	 * @return the cached result of the document. If the document has not
+	 *         been analyzed yet or the cached result is too old, it is
+	 *         analyzed and the result is cached.
+	 */
+	public static synchronized AnalyzedResult getAnalyzedResult(Node root) {
+		if (root == null)
+			return new AnalyzedResult();
+		CachedResult entry = results.get(root);
+		if ((entry == null) || (System.currentTimeMillis() - entry.time > MAX_AGE)) {
+			entry = new CachedResult(analyze(root));
+			results.put(root, entry);
+		}
+		return entry.result;
+	}
+
+	/**
+	 * The document is analyzed again and the cached result is replaced, so
+	 * the following calls of {@link #getAnalyzedResult(Node)} by every
+	 * consumer return the new result.
+	 *
+	 * @param root
+	 *            the document element of the document.
+	 * @return the new result.
+	 */
+	public static synchronized AnalyzedResult reanalyze(Node root) {
+		if (root == null)
+			return new AnalyzedResult();
+		CachedResult entry = new CachedResult(analyze(root));
+		results.put(root, entry);
+		return entry.result;
+	}
+
+	/**
+	 * The cached result of the document is discarded. The document will be
+	 * analyzed at the next request.
+	 *
+	 * @param root
+	 *            the document element of the document.
+	 */
+	public static synchronized void invalidate(Node root) {
+		if (root != null)
+			results.remove(root);
+	}
+
+	/**
+	 * @return the number of the analyses run on the documents.
+	 */
+	public static synchronized int getAnalysisCount() {
+		return analysisCount;
+	}
+}
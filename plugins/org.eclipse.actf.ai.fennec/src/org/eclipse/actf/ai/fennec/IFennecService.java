@@ -12,11 +12,13 @@ package org.eclipse.actf.ai.fennec;
 
 import org.eclipse.actf.ai.fennec.treemanager.IAccessKeyList;
 import org.eclipse.actf.ai.fennec.treemanager.ISoundControl;
+import org.eclipse.actf.ai.fennec.treemanager.ITableCell;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeManager;
 import org.eclipse.actf.ai.fennec.treemanager.IVideoControl;
 import org.eclipse.actf.model.dom.dombycom.IFlashNode;
 import org.eclipse.actf.util.vocab.IProposition;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
  * IFennecService interface defines the methods to manage a document with a
@@ -220,4 +222,141 @@ public interface IFennecService {
 	 * @throws FennecException
 	 */
 	ITreeItem expandWholeTree() throws FennecException;
+
+	/**
+	 * It expands whole tree of the document with reporting the progress.
+	 * 
+	 * @param monitor
+	 *            the monitor to report the number of the expanded items and the
+	 *            expansion rate. If it is cancelled, the expansion stops and
+	 *            {@link FennecInterruptedException} is thrown. It can be null.
+	 * @return the root element of the document.
+	 * @throws FennecException
+	 * @see #expandWholeTree()
+	 */
+	ITreeItem expandWholeTree(IProgressMonitor monitor) throws FennecException;
+
+	/**
+	 * It moves to the next item declaring the access key. The search wraps
+	 * around to the beginning of the document.
+	 * 
+	 * @param key
+	 *            the access key. The case is ignored.
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 */
+	int gotoAccessKey(char key) throws FennecException;
+
+	/**
+	 * It moves to the item at the position. The intermediate items are not
+	 * updated.
+	 * 
+	 * @param path
+	 *            the nth indexes of the item and its ancestors from the root.
+	 *            If an index is out of range, the item at the previous level is
+	 *            the target.
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 */
+	int gotoPosition(int[] path) throws FennecException;
+
+	/**
+	 * It moves to the last item of the page. The target is computed without
+	 * updating the intermediate items, and only the target is updated.
+	 * 
+	 * @param readingContent
+	 *            if true, it moves to the last item which has reading content.
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see ITreeManager#MOVED
+	 * @see ITreeManager#LEVEL_CHANGED
+	 */
+	int gotoEndOfPage(boolean readingContent) throws FennecException;
+
+	/**
+	 * It moves to the first item of the visual line above the line of the
+	 * current item. The lines are computed from the layout of the items which
+	 * have reading content.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see ITreeManager#NOACTION
+	 * @see ITreeManager#MOVED
+	 */
+	int gotoPreviousLine() throws FennecException;
+
+	/**
+	 * It moves to the first item of the visual line below the line of the
+	 * current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoPreviousLine()
+	 */
+	int gotoNextLine() throws FennecException;
+
+	/**
+	 * It moves to the first item of the visual line of the current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoPreviousLine()
+	 */
+	int gotoStartOfLine() throws FennecException;
+
+	/**
+	 * It moves to the last item of the visual line of the current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoPreviousLine()
+	 */
+	int gotoEndOfLine() throws FennecException;
+
+	/**
+	 * It moves to the left cell of the table cell including the current item.
+	 * The cells are resolved with their rowspan and colspan attributes, so a
+	 * spanned cell is skipped at once.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see ITreeManager#NOACTION
+	 * @see ITreeManager#MOVED
+	 */
+	int gotoLeftCell() throws FennecException;
+
+	/**
+	 * It moves to the right cell of the table cell including the current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoLeftCell()
+	 */
+	int gotoRightCell() throws FennecException;
+
+	/**
+	 * It moves to the upper cell of the table cell including the current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoLeftCell()
+	 */
+	int gotoUpCell() throws FennecException;
+
+	/**
+	 * It moves to the lower cell of the table cell including the current item.
+	 * 
+	 * @return the result code of the updating.
+	 * @throws FennecException
+	 * @see #gotoLeftCell()
+	 */
+	int gotoDownCell() throws FennecException;
+
+	/**
+	 * @return the table cell including the current item, or null if the
+	 *         current item is not in a table. The row and column headers of
+	 *         the cell are available from the returned object.
+	 * @throws FennecException
+	 */
+	ITableCell getActiveTableCell() throws FennecException;
 }
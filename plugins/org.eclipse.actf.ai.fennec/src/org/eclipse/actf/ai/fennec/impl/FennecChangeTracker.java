@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.HashMap;
+
+import org.eclipse.actf.ai.query.QueryService;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+
+/**
+ * Decides when the data built from the live DOM are stale. This is the only
+ * staleness rule of the Fennec service: the expansions, the UI strings, the
+ * classifications of the items and the derived indexes record the stamp at
+ * which they were built, and they are valid until a later change is stamped.
+ * The DOM bridge does not report mutations, so the stamp is advanced by
+ * <ul>
+ * <li>the changes made through the items, such as setText(), which mark the
+ * node and its ancestors,</li>
+ * <li>clicks and new analyses of the page, which mark the whole document,</li>
+ * <li>a check of the number of the elements of the document, done at most
+ * once per {@link #CHECK_INTERVAL}, which marks the whole document when
+ * scripts have inserted or removed elements, and</li>
+ * <li>{@link #MAX_AGE} after the whole document was marked, for the changes
+ * the check cannot see, such as a text replaced by a script.</li>
+ * </ul>
+ * The id indexes of the queries follow the same rule, so they are cleared
+ * whenever the whole document is marked.
+ */
+class FennecChangeTracker {
+    static final long CHECK_INTERVAL = 1000;
+
+    static final long MAX_AGE = 30000;
+
+    private final Document document;
+
+    private int stamp;
+
+    private int generationStamp;
+
+    private int generation;
+
+    private final HashMap<Node, Integer> dirtyStamps = new HashMap<Node, Integer>();
+
+    private long markedTime;
+
+    private long checkedTime;
+
+    private int elementCount;
+
+    FennecChangeTracker(Document document) {
+        this.document = document;
+        this.markedTime = System.currentTimeMillis();
+        this.checkedTime = markedTime;
+        this.elementCount = countElements();
+    }
+
+    FennecChangeTracker() {
+        this(null);
+    }
+
+    private int countElements() {
+        if (document == null)
+            return 0;
+        return document.getElementsByTagName("*").getLength();
+    }
+
+    /**
+     * Regard the whole document as changed if the check is due at the time.
+     */
+    void check(long now) {
+        if (now - checkedTime < CHECK_INTERVAL)
+            return;
+        checkedTime = now;
+        if ((now - markedTime >= MAX_AGE) || (countElements() != elementCount))
+            markAllDirty(now);
+    }
+
+    int getStamp() {
+        check(System.currentTimeMillis());
+        return stamp;
+    }
+
+    /**
+     * @return the document generation. It is incremented whenever the whole
+     *         document is regarded as changed.
+     */
+    int getGeneration() {
+        check(System.currentTimeMillis());
+        return generation;
+    }
+
+    /**
+     * Regard the whole document as changed, e.g. after a click or a new
+     * analysis of the page.
+     */
+    void markAllDirty() {
+        markAllDirty(System.currentTimeMillis());
+    }
+
+    private void markAllDirty(long now) {
+        stamp++;
+        generation++;
+        generationStamp = stamp;
+        dirtyStamps.clear();
+        markedTime = now;
+        checkedTime = now;
+        elementCount = countElements();
+        QueryService.clearIndexes();
+    }
+
+    /**
+     * Regard the node as changed. Its ancestors are also marked because their
+     * cached expansions may include the items built from the node.
+     */
+    void markDirty(Node n) {
+        if (n == null) {
+            markAllDirty();
+            return;
+        }
+        stamp++;
+        Integer s = new Integer(stamp);
+        for (; n != null; n = n.getParentNode()) {
+            dirtyStamps.put(n, s);
+        }
+    }
+
+    /**
+     * @return true if the node or the whole document has been marked after
+     *         the stamp.
+     */
+    boolean isChanged(Node n, int builtStamp) {
+        check(System.currentTimeMillis());
+        if (builtStamp < generationStamp)
+            return true;
+        if (n == null)
+            return false;
+        Integer s = dirtyStamps.get(n);
+        if (s == null)
+            return false;
+        return s.intValue() > builtStamp;
+    }
+}
@@ -12,14 +12,17 @@ package org.eclipse.actf.ai.fennec.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.WeakHashMap;
 
 import javax.xml.parsers.DocumentBuilder;
 
 import org.eclipse.actf.ai.fennec.IFennecEntry;
 import org.eclipse.actf.ai.query.IQuery;
 import org.eclipse.actf.ai.query.QueryService;
+import org.eclipse.actf.ai.xmlstore.IXMLEditableInfo;
 import org.eclipse.actf.ai.xmlstore.IXMLInfo;
 import org.eclipse.actf.ai.xmlstore.XMLStoreException;
+import org.eclipse.swt.widgets.Display;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -30,7 +33,25 @@ public class FennecDOMReader {
     public static final String Fennec_NAMESPACE_URI = "http://www.ibm.com/xmlns/prod/aiBrowser/fennec";
     public static final String Fennec_DOCUMENT_ELEMENT_NAME = "fennec";
 
-    private FennecServiceImpl fennecService;
+    private final FennecServiceImpl fennecService;
+
+    private static class CachedDescription {
+        final Node rootNode;
+
+        final FennecDescription.Top description;
+
+        CachedDescription(Node rootNode, FennecDescription.Top description) {
+            this.rootNode = rootNode;
+            this.description = description;
+        }
+    }
+
+    // The store replaces the root node when the file is modified, so the
+    // root node identifies the version of the file. The cached descriptions
+    // share their queries among the services, and the queries are not
+    // thread-safe, so the cache is used only on the UI thread, where the
+    // services are created. The other threads parse the file every time.
+    private static final WeakHashMap<IXMLInfo, CachedDescription> descriptionCache = new WeakHashMap<IXMLInfo, CachedDescription>();
 
     private void error(String message) {
         System.err.println(message);
@@ -40,17 +61,17 @@ public class FennecDOMReader {
         return QueryService.parse(e, parentQuery);
     }
 
-    private FennecMetadata parseNode(FennecMode mode, Element e, IQuery parentQuery) {
+    private FennecDescription parseNode(Element e, IQuery parentQuery) {
         NodeList nl = e.getChildNodes();
         IQuery q = parseQuery(e, parentQuery);
         if (q != null) parentQuery = q;
-        FennecMetadata[] mds = parseInternal(mode, nl, parentQuery);
-        return new FennecGroupMetadata(fennecService, q, mode, mds);
+        FennecDescription[] descs = parseInternal(nl, parentQuery);
+        return new FennecDescription.Group(q, descs);
     }
 
-    private FennecMetadata parseHeader(FennecMode mode, Element e, short level, IQuery parentQuery) {
+    private FennecDescription parseHeader(Element e, short level, IQuery parentQuery) {
         // IQuery q = parseQuery(e, parentQuery);
-        return FennecSimpleMetadata.newHeader(fennecService, null, mode, level);
+        return new FennecDescription.Header(level);
     }
 
     private List parseTextFormat(Element e, IQuery parentQuery) {
@@ -78,18 +99,18 @@ public class FennecDOMReader {
         return al;
     }
 
-    private FennecMetadata parseAltText(FennecMode mode, Element e, IQuery parentQuery) {
+    private FennecDescription parseAltText(Element e, IQuery parentQuery) {
         IQuery q = parseQuery(e, parentQuery);
         if (q != null) parentQuery = q;
         List l = parseTextFormat(e, parentQuery);
-        return FennecSimpleMetadata.newAltText(fennecService, q, mode, l);
+        return new FennecDescription.AltText(q, l);
     }
 
-    private FennecMetadata parseDescription(FennecMode mode, Element e, IQuery parentQuery) {
+    private FennecDescription parseDescription(Element e, IQuery parentQuery) {
         IQuery q = parseQuery(e, parentQuery);
         if (q != null) parentQuery = q;
         List l = parseTextFormat(e, parentQuery);
-        return FennecSimpleMetadata.newDescription(fennecService, mode, q, l);
+        return new FennecDescription.DescriptionText(q, l);
     }
 
     private boolean parseBoolean(String str) {
@@ -123,10 +144,10 @@ public class FennecDOMReader {
         return FennecMode.TRIGGER_MOVE;
     }
 
-    private FennecMetadata parseInternalForElement(FennecMode mode, Element e, IQuery parentQuery) {
+    private FennecDescription parseInternalForElement(Element e, IQuery parentQuery) {
         String name = e.getLocalName();
         if (name.equals("node")) {
-            return parseNode(mode, e, parentQuery);
+            return parseNode(e, parentQuery);
         } else if (name.equals("table")) {
             // TODO
         } else if (name.equals("ul")) {
@@ -134,23 +155,23 @@ public class FennecDOMReader {
         } else if (name.equals("ol")) {
             // TODO
         } else if (name.equals("h-")) {
-            return parseHeader(mode, e, (short) -1, parentQuery);
+            return parseHeader(e, (short) -1, parentQuery);
         } else if (name.equals("h1")) {
-            return parseHeader(mode, e, (short) 1, parentQuery);
+            return parseHeader(e, (short) 1, parentQuery);
         } else if (name.equals("h2")) {
-            return parseHeader(mode, e, (short) 2, parentQuery);
+            return parseHeader(e, (short) 2, parentQuery);
         } else if (name.equals("h3")) {
-            return parseHeader(mode, e, (short) 3, parentQuery);
+            return parseHeader(e, (short) 3, parentQuery);
         } else if (name.equals("h4")) {
-            return parseHeader(mode, e, (short) 4, parentQuery);
+            return parseHeader(e, (short) 4, parentQuery);
         } else if (name.equals("h5")) {
-            return parseHeader(mode, e, (short) 5, parentQuery);
+            return parseHeader(e, (short) 5, parentQuery);
         } else if (name.equals("h6")) {
-            return parseHeader(mode, e, (short) 6, parentQuery);
+            return parseHeader(e, (short) 6, parentQuery);
         } else if (name.equals("altText")) {
-            return parseAltText(mode, e, parentQuery);
+            return parseAltText(e, parentQuery);
         } else if (name.equals("description")) {
-            return parseDescription(mode, e, parentQuery);
+            return parseDescription(e, parentQuery);
         } else if (name.equals("metadata")) {
             // TODO
         } else if (name.equals("keyDescription")) {
@@ -187,11 +208,8 @@ public class FennecDOMReader {
                 waitContents = parseBoolean(waitContentsStr);
             }
 
-            FennecMode nextMode = new FennecMode(FennecMode.TYPE_ATTACH, trigger,
-                                             auto, changeless, waitContents);
-
-            FennecMetadata[] mds = parseInternal(nextMode, nl, q);
-            return FennecRecombinantMetadata.newAttach(fennecService, q, mode, nextMode, mds);
+            FennecDescription[] descs = parseInternal(nl, q);
+            return new FennecDescription.Attach(q, trigger, auto, changeless, waitContents, descs);
         } else if (name.equals("unwrap")) {
             NodeList nl = e.getChildNodes();
             IQuery q = parseQuery(e, parentQuery);
@@ -202,15 +220,13 @@ public class FennecDOMReader {
             String triggerStr = e.getAttributeNS(null, "trigger");
             int trigger = parseTrigger(triggerStr);
 
-            FennecMode nextMode = new FennecMode(FennecMode.TYPE_UNWRAP, trigger, false, false, false);
-
-            FennecMetadata[] mds = parseInternal(nextMode, nl, q);
-            return FennecRecombinantMetadata.newUnwrap(fennecService, q, mode, nextMode, mds);
+            FennecDescription[] descs = parseInternal(nl, q);
+            return new FennecDescription.Unwrap(q, trigger, descs);
         }
         return null;
     }
 
-    private FennecMetadata[] parseInternal(FennecMode mode, NodeList nl, IQuery parentQuery) {
+    private FennecDescription[] parseInternal(NodeList nl, IQuery parentQuery) {
         ArrayList al = new ArrayList();
         int len = nl.getLength();
         for (int i = 0; i < len; i++) {
@@ -219,15 +235,15 @@ public class FennecDOMReader {
                 String ns = n.getNamespaceURI();
                 if (ns.equals(Fennec_NAMESPACE_URI)) {
                     Element e = (Element) n;
-                    FennecMetadata md = parseInternalForElement(mode, e, parentQuery);
-                    if (md != null) al.add(md);
+                    FennecDescription desc = parseInternalForElement(e, parentQuery);
+                    if (desc != null) al.add(desc);
                 }
             }
         }
-        return (FennecMetadata[]) al.toArray(new FennecMetadata[0]);
+        return (FennecDescription[]) al.toArray(new FennecDescription[0]);
     }
 
-    private FennecMetadata parseTop(Element e) {
+    private FennecDescription.Top parseTop(Element e) {
         String namespaceURI = e.getNamespaceURI();
         if (!namespaceURI.equals(Fennec_NAMESPACE_URI)) {
             error("The namespace URI of the document element must be " + Fennec_NAMESPACE_URI);
@@ -237,21 +253,24 @@ public class FennecDOMReader {
         if (!(Fennec_DOCUMENT_ELEMENT_NAME.equals(localName))) {
             error("The document element is not fennec");
         }
-        FennecMode rootMode = new FennecMode(FennecMode.TYPE_SIMPLE);
-
         IQuery q = parseQuery(e, null);
-        FennecMetadata[] mds = parseInternal(rootMode, e.getChildNodes(), q);
-        if (mds.length == 0) {
+        FennecDescription[] descs = parseInternal(e.getChildNodes(), q);
+        if (descs.length == 0) {
             return null;
         }
         
-        return new FennecGroupMetadata(fennecService, q, rootMode, mds);
+        return new FennecDescription.Top(q, descs);
     }
 
-    public FennecMetadata parse(IFennecEntry entry) throws XMLStoreException {
-        FennecEntryImpl ei = (FennecEntryImpl) entry;
-        IXMLInfo info = ei.getIXMLInfo();
+    FennecDescription.Top parseDescription(IXMLInfo info) throws XMLStoreException {
         Node n = info.getRootNode();
+        // User annotations are edited in place, so they are not cached.
+        boolean cacheable = !(info instanceof IXMLEditableInfo) && (Display.getCurrent() != null);
+        if (cacheable) {
+            CachedDescription cached = descriptionCache.get(info);
+            if ((cached != null) && (cached.rootNode == n))
+                return cached.description;
+        }
         Element e;
         if (n instanceof Document) {
             e = ((Document) n).getDocumentElement();
@@ -260,7 +279,19 @@ public class FennecDOMReader {
         } else {
             throw new XMLStoreException("Failed to load Fennec.", null);
         }
-        return parseTop(e);
+        FennecDescription.Top desc = parseTop(e);
+        if (cacheable) {
+            descriptionCache.put(info, new CachedDescription(n, desc));
+        }
+        return desc;
+    }
+
+    public FennecMetadata parse(IFennecEntry entry) throws XMLStoreException {
+        FennecEntryImpl ei = (FennecEntryImpl) entry;
+        FennecDescription.Top desc = parseDescription(ei.getIXMLInfo());
+        if (desc == null)
+            return null;
+        return desc.instantiate(fennecService);
     }
 
     FennecDOMReader(FennecServiceImpl fennecService) {
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.List;
+
+import org.eclipse.actf.ai.query.IQuery;
+
+
+/**
+ * Parsed form of a Fennec file. A description holds the compiled queries and
+ * the parameters of the metadata, but no per-document state, so it can be
+ * shared by all the {@link FennecServiceImpl} instances. The metadata of a
+ * service are created from the description by {@link #instantiate}.
+ */
+abstract class FennecDescription {
+    abstract FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode);
+
+    static FennecMetadata[] instantiate(FennecDescription[] descs, FennecServiceImpl fennecService, FennecMode mode) {
+        FennecMetadata[] mds = new FennecMetadata[descs.length];
+        for (int i = 0; i < descs.length; i++) {
+            mds[i] = descs[i].instantiate(fennecService, mode);
+        }
+        return mds;
+    }
+
+    static class Top {
+        private final IQuery q;
+
+        private final FennecDescription[] children;
+
+        Top(IQuery q, FennecDescription[] children) {
+            this.q = q;
+            this.children = children;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService) {
+            FennecMode rootMode = new FennecMode(FennecMode.TYPE_SIMPLE);
+            FennecMetadata[] mds = FennecDescription.instantiate(children, fennecService, rootMode);
+            return new FennecGroupMetadata(fennecService, q, rootMode, mds);
+        }
+    }
+
+    static class Group extends FennecDescription {
+        private final IQuery q;
+
+        private final FennecDescription[] children;
+
+        Group(IQuery q, FennecDescription[] children) {
+            this.q = q;
+            this.children = children;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            FennecMetadata[] mds = instantiate(children, fennecService, mode);
+            return new FennecGroupMetadata(fennecService, q, mode, mds);
+        }
+    }
+
+    static class Header extends FennecDescription {
+        private final short level;
+
+        Header(short level) {
+            this.level = level;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            return FennecSimpleMetadata.newHeader(fennecService, null, mode, level);
+        }
+    }
+
+    static class AltText extends FennecDescription {
+        private final IQuery q;
+
+        private final List textFormat;
+
+        AltText(IQuery q, List textFormat) {
+            this.q = q;
+            this.textFormat = textFormat;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            return FennecSimpleMetadata.newAltText(fennecService, q, mode, textFormat);
+        }
+    }
+
+    static class DescriptionText extends FennecDescription {
+        private final IQuery q;
+
+        private final List textFormat;
+
+        DescriptionText(IQuery q, List textFormat) {
+            this.q = q;
+            this.textFormat = textFormat;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            return FennecSimpleMetadata.newDescription(fennecService, mode, q, textFormat);
+        }
+    }
+
+    static class Attach extends FennecDescription {
+        private final IQuery q;
+
+        private final int trigger;
+
+        private final boolean auto;
+
+        private final boolean changeless;
+
+        private final boolean waitContents;
+
+        private final FennecDescription[] children;
+
+        Attach(IQuery q, int trigger, boolean auto, boolean changeless, boolean waitContents,
+               FennecDescription[] children) {
+            this.q = q;
+            this.trigger = trigger;
+            this.auto = auto;
+            this.changeless = changeless;
+            this.waitContents = waitContents;
+            this.children = children;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            // A mode holds the binding and the results for a document.
+            FennecMode nextMode = new FennecMode(FennecMode.TYPE_ATTACH, trigger, auto, changeless, waitContents);
+            FennecMetadata[] mds = instantiate(children, fennecService, nextMode);
+            return FennecRecombinantMetadata.newAttach(fennecService, q, mode, nextMode, mds);
+        }
+    }
+
+    static class Unwrap extends FennecDescription {
+        private final IQuery q;
+
+        private final int trigger;
+
+        private final FennecDescription[] children;
+
+        Unwrap(IQuery q, int trigger, FennecDescription[] children) {
+            this.q = q;
+            this.trigger = trigger;
+            this.children = children;
+        }
+
+        FennecMetadata instantiate(FennecServiceImpl fennecService, FennecMode mode) {
+            FennecMode nextMode = new FennecMode(FennecMode.TYPE_UNWRAP, trigger, false, false, false);
+            FennecMetadata[] mds = instantiate(children, fennecService, nextMode);
+            return FennecRecombinantMetadata.newUnwrap(fennecService, q, mode, nextMode, mds);
+        }
+    }
+}
@@ -59,7 +59,8 @@ class FennecGeneratedMetadata extends FennecBundleMetadata {
     @Override
     List expand(TreeItemFennec pItem, int trigger) throws FennecException {
         ITreeItem[] childItems = pItem.getChildItems();
-        if (!mode.changed(pItem, trigger) && pItem.hasAlreadyChildRefreshed()) {
+        if (pItem.hasAlreadyChildRefreshed()
+                && !mode.changed(node, pItem.getRefreshedStamp(), trigger)) {
             return Arrays.asList(childItems);
         } else {
             TreeItemFennec bItem = mode.buildItemContinued(node, pItem);
@@ -80,12 +81,19 @@ class FennecGeneratedMetadata extends FennecBundleMetadata {
         this.node = node;
     }
 
-    public static FennecMetadata generate(FennecGeneratedMetadata meta, FennecGeneratedMetadata meta2) {
+    /**
+     * Merge the child metadata of <i>meta2</i> into <i>meta</i>. The child
+     * metadata arrays are shared when one of them is empty, so collapsing
+     * wrappers without metadata allocates nothing.
+     */
+    public static FennecGeneratedMetadata generate(FennecGeneratedMetadata meta, FennecGeneratedMetadata meta2) {
+        if (meta2.childMetadata.length == 0)
+            return meta;
+        if (meta.childMetadata.length == 0)
+            return new FennecGeneratedMetadata(meta.fennecService, meta.mode, meta.node, meta2.childMetadata);
         FennecMetadata[] childMds = new FennecMetadata[meta.childMetadata.length+meta2.childMetadata.length];
-        for(int i=0; i<meta.childMetadata.length; i++)
-            childMds[i] = meta.childMetadata[i];
-        for(int i=0; i<meta2.childMetadata.length; i++)
-            childMds[meta.childMetadata.length+i] = meta2.childMetadata[i];
+        System.arraycopy(meta.childMetadata, 0, childMds, 0, meta.childMetadata.length);
+        System.arraycopy(meta2.childMetadata, 0, childMds, meta.childMetadata.length, meta2.childMetadata.length);
         return new FennecGeneratedMetadata(meta.fennecService, meta.mode, meta.node, childMds);
     }
 
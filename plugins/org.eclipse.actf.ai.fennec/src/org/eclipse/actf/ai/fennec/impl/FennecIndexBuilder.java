@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.actf.ai.fennec.FennecException;
+import org.eclipse.swt.widgets.Display;
+
+
+/**
+ * Fills the stale jump indexes and the line index in one walk of the tree.
+ * The walk runs on the
+ * UI thread in short slices posted by {@link Display#asyncExec(Runnable)}, as
+ * the prefetch does, so a search or a line move does not wait for the whole
+ * tree. An index becomes valid for the document generation only when the walk reaches the
+ * end of the tree without a change of the tree.
+ */
+class FennecIndexBuilder {
+    private static final long SLICE_MILLIS = 10;
+
+    private final FennecServiceImpl service;
+
+    private final FennecChangeTracker changeTracker;
+
+    private Job currentJob;
+
+    FennecIndexBuilder(FennecServiceImpl service) {
+        this.service = service;
+        this.changeTracker = service.getChangeTracker();
+    }
+
+    private class Job implements Runnable {
+        private final Display display;
+
+        private final int stamp;
+
+        private final int generation;
+
+        private final ArrayList<FennecJumpIndex> indexes;
+
+        private final FennecLineIndex lineIndex;
+
+        private final FennecSearchCursor cursor;
+
+        private TreeItemFennec item;
+
+        /**
+         * @param lineIndex
+         *            the line index to be filled, or null.
+         */
+        Job(Display display, TreeItemFennec root, ArrayList<FennecJumpIndex> indexes, FennecLineIndex lineIndex) {
+            this.display = display;
+            this.stamp = changeTracker.getStamp();
+            this.generation = changeTracker.getGeneration();
+            this.indexes = indexes;
+            this.lineIndex = lineIndex;
+            this.cursor = new FennecSearchCursor(root, false);
+            this.item = root;
+            for (FennecJumpIndex ji : indexes) {
+                ji.reset();
+            }
+            if (lineIndex != null)
+                lineIndex.reset();
+        }
+
+        private boolean isCancelled() {
+            return (currentJob != this) || (changeTracker.getStamp() != stamp) || display.isDisposed();
+        }
+
+        boolean isBuilding(Object index) {
+            return !isCancelled() && ((index == lineIndex) || indexes.contains(index));
+        }
+
+        private void add(TreeItemFennec item) throws FennecException {
+            if (lineIndex != null)
+                service.addLine(item, lineIndex);
+            int[] path = null;
+            for (FennecJumpIndex ji : indexes) {
+                if (ji.getProposition().eval(item)) {
+                    if (path == null)
+                        path = FennecServiceImpl.getPath(item);
+                    ji.add(path);
+                }
+            }
+        }
+
+        public void run() {
+            if (isCancelled())
+                return;
+            long limit = System.currentTimeMillis() + SLICE_MILLIS;
+            try {
+                while (item != null) {
+                    add(item);
+                    item = cursor.next();
+                    if (System.currentTimeMillis() >= limit) {
+                        display.asyncExec(this);
+                        return;
+                    }
+                }
+            } catch (FennecException e) {
+                // The page is changing. The next search will start a new walk.
+                finish();
+                return;
+            }
+            for (FennecJumpIndex ji : indexes) {
+                ji.setGeneration(generation);
+            }
+            if (lineIndex != null)
+                lineIndex.setGeneration(generation);
+            finish();
+        }
+
+        private void finish() {
+            if (currentJob == this)
+                currentJob = null;
+        }
+    }
+
+    /**
+     * Start filling the stale indexes unless the index is already being
+     * filled. This method must be called on the UI thread.
+     * 
+     * @param index
+     *            the jump index or the line index requested by the caller.
+     * @param lineIndex
+     *            the line index of the service, or null.
+     */
+    void schedule(TreeItemFennec root, Object index, List<FennecJumpIndex> allIndexes, FennecLineIndex lineIndex) {
+        if ((currentJob != null) && currentJob.isBuilding(index))
+            return;
+        Display display = Display.getCurrent();
+        if (display == null) {
+            currentJob = null;
+            return;
+        }
+        int generation = changeTracker.getGeneration();
+        ArrayList<FennecJumpIndex> staleIndexes = new ArrayList<FennecJumpIndex>();
+        for (FennecJumpIndex ji : allIndexes) {
+            if (!ji.isValid(generation))
+                staleIndexes.add(ji);
+        }
+        if ((lineIndex != null) && lineIndex.isValid(generation))
+            lineIndex = null;
+        currentJob = new Job(display, root, staleIndexes, lineIndex);
+        display.asyncExec(currentJob);
+    }
+
+    void cancel() {
+        currentJob = null;
+    }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.actf.ai.fennec.treemanager.IndexedProposition;
+
+
+/**
+ * Positions of the items satisfying an {@link IndexedProposition}. A position
+ * is the path of nth indexes from the root item, and the positions are sorted
+ * in document order. A complete index is kept for the document generation.
+ * When an item is changed, only the entries under the item are replaced, as
+ * {@link FennecLineIndex} does.
+ */
+class FennecJumpIndex {
+    private static final int MAX_CHANGED_ITEMS = 64;
+
+    private final IndexedProposition proposition;
+
+    private int[][] paths = new int[16][];
+
+    private int size;
+
+    private int generation = -1;
+
+    // The paths of the items changed since the index was updated.
+    private final ArrayList<int[]> changedPaths = new ArrayList<int[]>();
+
+    FennecJumpIndex(IndexedProposition proposition) {
+        this.proposition = proposition;
+    }
+
+    IndexedProposition getProposition() {
+        return proposition;
+    }
+
+    boolean isValid(int generation) {
+        return this.generation == generation;
+    }
+
+    /**
+     * Mark the index as complete for the document generation.
+     */
+    void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
+    void reset() {
+        this.generation = -1;
+        for (int i = 0; i < size; i++) {
+            paths[i] = null;
+        }
+        size = 0;
+        changedPaths.clear();
+    }
+
+    /**
+     * Record the change of the item at the path. The index is filled again if
+     * too many items are changed.
+     */
+    void itemChanged(int[] path) {
+        if (generation < 0)
+            return;
+        if (changedPaths.size() >= MAX_CHANGED_ITEMS) {
+            reset();
+            return;
+        }
+        changedPaths.add(path);
+    }
+
+    /**
+     * @return the paths of the items changed since the last call.
+     */
+    List<int[]> takeChangedPaths() {
+        ArrayList<int[]> r = new ArrayList<int[]>(changedPaths);
+        changedPaths.clear();
+        return r;
+    }
+
+    /**
+     * Paths must be added in document order.
+     */
+    void add(int[] path) {
+        if (size == paths.length) {
+            int[][] newPaths = new int[size * 2][];
+            System.arraycopy(paths, 0, newPaths, 0, size);
+            paths = newPaths;
+        }
+        paths[size++] = path;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Replace the entries under the item at <i>path</i> by the entries of
+     * <i>part</i>, which must be in the subtree of the item.
+     */
+    void replace(int[] path, FennecJumpIndex part) {
+        int start = lowerBound(path);
+        int end = start;
+        while ((end < size) && isInSubtree(path, paths[end])) {
+            end++;
+        }
+        int newSize = size - (end - start) + part.size;
+        if (newSize > paths.length) {
+            int[][] newPaths = new int[Math.max(newSize, paths.length * 2)][];
+            System.arraycopy(paths, 0, newPaths, 0, size);
+            paths = newPaths;
+        }
+        System.arraycopy(paths, end, paths, start + part.size, size - end);
+        System.arraycopy(part.paths, 0, paths, start, part.size);
+        for (int i = newSize; i < size; i++) {
+            paths[i] = null;
+        }
+        size = newSize;
+    }
+
+    static boolean isInSubtree(int[] root, int[] path) {
+        if (path.length < root.length)
+            return false;
+        for (int i = 0; i < root.length; i++) {
+            if (path[i] != root[i])
+                return false;
+        }
+        return true;
+    }
+
+    static int compare(int[] p1, int[] p2) {
+        int len = Math.min(p1.length, p2.length);
+        for (int i = 0; i < len; i++) {
+            if (p1[i] != p2[i])
+                return p1[i] < p2[i] ? -1 : 1;
+        }
+        // An ancestor precedes its descendants.
+        return p1.length - p2.length;
+    }
+
+    // Returns the index of the first path after the given path.
+    private int upperBound(int[] path) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(paths[mid], path) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Returns the index of the first path not before the given path.
+    private int lowerBound(int[] path) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(paths[mid], path) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int[] findNext(int[] path) {
+        int idx = upperBound(path);
+        if (idx >= size)
+            return null;
+        return paths[idx];
+    }
+
+    int[] findPrevious(int[] path) {
+        int idx = lowerBound(path) - 1;
+        if (idx < 0)
+            return null;
+        return paths[idx];
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.eclipse.actf.model.dom.dombycom.INodeEx;
+import org.eclipse.swt.graphics.Rectangle;
+import org.w3c.dom.Node;
+
+
+/**
+ * Layout rectangles of the base nodes of the items. A rectangle is fetched
+ * from the browser at the first request for the node in a document
+ * generation, so the block jumps and the line index do not fetch it again.
+ * When an item is changed, the rectangles of its base node, the ancestors
+ * and the descendants are fetched again, as the line index collects the
+ * lines under the item again.
+ */
+class FennecLayoutIndex {
+    private final int generation;
+
+    private final HashMap<Node, Rectangle> locations = new HashMap<Node, Rectangle>();
+
+    FennecLayoutIndex(int generation) {
+        this.generation = generation;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the location of the node, or null if the node has no location.
+     */
+    Rectangle getLocation(INodeEx nex) {
+        if (locations.containsKey(nex))
+            return locations.get(nex);
+        Rectangle r = nex.getLocation();
+        locations.put(nex, r);
+        return r;
+    }
+
+    /**
+     * Forget the rectangles that may be moved by the change of the node.
+     */
+    void nodeChanged(Node changed) {
+        HashSet<Node> ancestors = new HashSet<Node>();
+        for (Node n = changed; n != null; n = n.getParentNode()) {
+            ancestors.add(n);
+        }
+        for (Iterator<Node> it = locations.keySet().iterator(); it.hasNext();) {
+            Node node = it.next();
+            if (ancestors.contains(node)) {
+                it.remove();
+                continue;
+            }
+            for (Node n = node.getParentNode(); n != null; n = n.getParentNode()) {
+                if (n == changed) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.graphics.Rectangle;
+
+
+/**
+ * Visual lines of a page. The text-bearing leaf items are added in document
+ * order with their layout rectangles, and an item starts a new line when it is
+ * not vertically aligned with the previous item. The positions of the items
+ * are kept as nth paths, so the line of an item is found by binary search.
+ * A complete index is kept for the document generation. When an item is
+ * changed, only the entries under the item are replaced and the lines are
+ * assigned again from the kept rectangles.
+ */
+class FennecLineIndex {
+    private static final int MAX_CHANGED_ITEMS = 64;
+
+    private int generation = -1;
+
+    // The paths of the items changed since the index was updated.
+    private final ArrayList<int[]> changedPaths = new ArrayList<int[]>();
+
+    private int[][] paths = new int[64][];
+
+    private Rectangle[] locations = new Rectangle[64];
+
+    private int size;
+
+    private int[] lines;
+
+    private int[] lineStarts;
+
+    private int lineCount = -1;
+
+    boolean isValid(int generation) {
+        return this.generation == generation;
+    }
+
+    /**
+     * Mark the index as complete for the document generation.
+     */
+    void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
+    void reset() {
+        generation = -1;
+        for (int i = 0; i < size; i++) {
+            paths[i] = null;
+            locations[i] = null;
+        }
+        size = 0;
+        lineCount = -1;
+        changedPaths.clear();
+    }
+
+    /**
+     * Record the change of the item at the path. The index is filled again if
+     * too many items are changed.
+     */
+    void itemChanged(int[] path) {
+        if (generation < 0)
+            return;
+        if (changedPaths.size() >= MAX_CHANGED_ITEMS) {
+            reset();
+            return;
+        }
+        changedPaths.add(path);
+    }
+
+    /**
+     * @return the paths of the items changed since the last call.
+     */
+    List<int[]> takeChangedPaths() {
+        ArrayList<int[]> r = new ArrayList<int[]>(changedPaths);
+        changedPaths.clear();
+        return r;
+    }
+
+    static boolean isAligned(Rectangle r1, Rectangle r2) {
+        int c1 = r1.y + r1.height / 2;
+        int c2 = r2.y + r2.height / 2;
+        return ((r2.y <= c1) && (c1 < r2.y + r2.height)) || ((r1.y <= c2) && (c2 < r1.y + r1.height));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= paths.length)
+            return;
+        int newLength = Math.max(capacity, paths.length * 2);
+        int[][] newPaths = new int[newLength][];
+        System.arraycopy(paths, 0, newPaths, 0, size);
+        paths = newPaths;
+        Rectangle[] newLocations = new Rectangle[newLength];
+        System.arraycopy(locations, 0, newLocations, 0, size);
+        locations = newLocations;
+    }
+
+    /**
+     * Items must be added in document order. <i>location</i> may be null if
+     * the item has no layout, and then the item joins the current line.
+     */
+    void add(int[] path, Rectangle location) {
+        ensureCapacity(size + 1);
+        paths[size] = path;
+        locations[size] = location;
+        size++;
+        lineCount = -1;
+    }
+
+    /**
+     * Replace the entries under the item at <i>path</i> by the entries of
+     * <i>part</i>, which must be in the subtree of the item.
+     */
+    void replace(int[] path, FennecLineIndex part) {
+        int start = indexOf(path) + 1;
+        if ((start > 0) && (FennecJumpIndex.compare(paths[start - 1], path) == 0))
+            start--;
+        int end = start;
+        while ((end < size) && FennecJumpIndex.isInSubtree(path, paths[end])) {
+            end++;
+        }
+        int newSize = size - (end - start) + part.size;
+        ensureCapacity(newSize);
+        System.arraycopy(paths, end, paths, start + part.size, size - end);
+        System.arraycopy(locations, end, locations, start + part.size, size - end);
+        System.arraycopy(part.paths, 0, paths, start, part.size);
+        System.arraycopy(part.locations, 0, locations, start, part.size);
+        for (int i = newSize; i < size; i++) {
+            paths[i] = null;
+            locations[i] = null;
+        }
+        size = newSize;
+        lineCount = -1;
+    }
+
+    private void assignLines() {
+        if (lineCount >= 0)
+            return;
+        lines = new int[size];
+        lineStarts = new int[16];
+        lineCount = 0;
+        Rectangle lastLocation = null;
+        for (int i = 0; i < size; i++) {
+            Rectangle location = locations[i];
+            boolean newLine;
+            if (i == 0) {
+                newLine = true;
+            } else if ((location == null) || (lastLocation == null)) {
+                newLine = false;
+            } else {
+                newLine = !isAligned(location, lastLocation);
+            }
+            if (location != null)
+                lastLocation = location;
+            if (newLine) {
+                if (lineCount == lineStarts.length) {
+                    int[] newLineStarts = new int[lineCount * 2];
+                    System.arraycopy(lineStarts, 0, newLineStarts, 0, lineCount);
+                    lineStarts = newLineStarts;
+                }
+                lineStarts[lineCount++] = i;
+            }
+            lines[i] = lineCount - 1;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getLineCount() {
+        assignLines();
+        return lineCount;
+    }
+
+    /**
+     * @return the index of the last item at or before the path, or -1.
+     */
+    int indexOf(int[] path) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (FennecJumpIndex.compare(paths[mid], path) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    int getLine(int idx) {
+        assignLines();
+        return lines[idx];
+    }
+
+    int[] getLineStart(int line) {
+        assignLines();
+        return paths[lineStarts[line]];
+    }
+
+    int[] getLineEnd(int line) {
+        assignLines();
+        int end = (line + 1 < lineCount) ? lineStarts[line + 1] : size;
+        return paths[end - 1];
+    }
+}
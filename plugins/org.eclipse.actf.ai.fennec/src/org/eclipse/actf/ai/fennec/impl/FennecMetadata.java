@@ -60,6 +60,10 @@ abstract class FennecMetadata {
         return q.query(baseNode);
     }
 
+    IQuery getQuery() {
+        return query;
+    }
+
     NodeList query(Node baseNode) {
         return query(this.query, baseNode);
     }
@@ -82,10 +86,9 @@ abstract class FennecMetadata {
             } else {
                 nl = query(baseItem);
             }
-            int len = nl.getLength(); 
-            ArrayList result = new ArrayList(len);
-            for (int i = 0; i < len; i++) {
-                Node n = nl.item(i);
+            ArrayList result = new ArrayList();
+            Node n;
+            for (int i = 0; (n = nl.item(i)) != null; i++) {
                 TreeItemFennec newItem = TreeItemFennec.newTreeItem(this, baseItem, n);
                 if (newItem != null) {
                     result.add(newItem);
@@ -13,11 +13,15 @@ package org.eclipse.actf.ai.fennec.impl;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.actf.ai.fennec.FennecException;
 import org.eclipse.actf.ai.fennec.FennecInterruptedException;
 import org.eclipse.actf.ai.fennec.autotranslator.AutoTranslator;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+import org.eclipse.actf.ai.query.IQueryMatcher;
+import org.eclipse.actf.ai.query.QueryService;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -61,7 +65,7 @@ public class FennecMode {
 
     private List<FennecMetadata> belongingMetadata;
 
-    private HashMap<Node, ArrayList<FennecMetadata>> metadataMap;
+    private HashMap<Node, FennecMetadata[]> metadataMap;
 
     void addMetadata(FennecMetadata md) {
         if (false) {
@@ -76,50 +80,94 @@ public class FennecMode {
 
     void setBaseMetadata(FennecRecombinantMetadata md) {
         this.baseMetadata = md;
+        if (md != null)
+            cachedResult.setStatistics(md.fennecService.getStatistics());
     }
 
-    boolean changed(TreeItemFennec pItem, int trigger) {
-        // TODO:
-        // return true;
+    FennecChangeTracker getChangeTracker() {
+        if (baseMetadata == null)
+            return null;
+        return baseMetadata.fennecService.getChangeTracker();
+    }
+
+    int getGeneration() {
+        FennecChangeTracker tracker = getChangeTracker();
+        if (tracker == null)
+            return 0;
+        return tracker.getGeneration();
+    }
+
+    int getStamp() {
+        FennecChangeTracker tracker = getChangeTracker();
+        if (tracker == null)
+            return 0;
+        return tracker.getStamp();
+    }
+
+    boolean changed(Node baseNode, int builtStamp, int trigger) {
         if ((trigger & TRIGGER_WITHOUTCHANGE) != 0)
             return false;
         if (changeless)
             return false;
-        return true;
+        if ((trigger & (TRIGGER_CLICK | TRIGGER_UNWRAP)) != 0)
+            return true;
+        FennecChangeTracker tracker = getChangeTracker();
+        if (tracker == null)
+            return true;
+        return tracker.isChanged(baseNode, builtStamp);
     }
 
     private TreeItemFennec currentTopItem;
 
     TreeItemFennec buildItem(Node n, TreeItemFennec pItem) {
         currentTopItem = pItem;
+        int stamp = getStamp();
         TreeItemFennec item = AutoTranslator.translate(this, pItem, n);
         if (pItem != null)
-            pItem.markRefreshedChild();
+            pItem.markRefreshedChild(stamp);
         return item;
     }
 
     TreeItemFennec buildItemContinued(Node n, TreeItemFennec item) {
         currentTopItem = null;
+        int stamp = getStamp();
         TreeItemFennec newItem = AutoTranslator.translateContinued(this, item, n);
         if (newItem != null)
-            newItem.markRefreshedChild();
+            newItem.markRefreshedChild(stamp);
         return newItem;
     }
 
     private FennecMetadata[] topMds;
 
-    private FennecMetadata[] initMetadataMap(FennecMetadata[] mds, Node n) {
-        if (topMds != null) return topMds;
+    private int metadataGeneration;
 
-        metadataMap = new HashMap<Node, ArrayList<FennecMetadata>>();
+    private FennecMetadata[] initMetadataMap(FennecMetadata[] mds, Node n) {
+        // The binding is rebuilt for each document generation so that it
+        // neither holds detached nodes nor misses newly inserted ones.
+        int generation = getGeneration();
+        if ((topMds != null) && (metadataGeneration == generation)) return topMds;
+        metadataGeneration = generation;
+
+        // The queries of the targeted metadata are evaluated together.
+        IQueryMatcher<FennecMetadata> matcher = QueryService.createMatcher();
+        addMetadataQueries(matcher, mds);
+        Map<FennecMetadata, List<Node>> matched = matcher.match(n);
+
+        HashMap<Node, ArrayList<FennecMetadata>> metaMap = new HashMap<Node, ArrayList<FennecMetadata>>();
         ArrayList<FennecMetadata> mdList = new ArrayList<FennecMetadata>();
+        Document doc = getDocument(n);
         for (int i = 0; i < mds.length; i++) {
             if (mds[i].hasTargets()) {
-                registMetadata(metadataMap, mds[i], n);
+                registMetadata(metaMap, matched, doc, mds[i], n);
             } else {
                 mdList.add(mds[i]);
             }
         }
+        metadataMap = new HashMap<Node, FennecMetadata[]>();
+        for (Map.Entry<Node, ArrayList<FennecMetadata>> e : metaMap.entrySet()) {
+            ArrayList<FennecMetadata> aMeta = e.getValue();
+            metadataMap.put(e.getKey(), aMeta.toArray(new FennecMetadata[aMeta.size()]));
+        }
         topMds = mdList.toArray(new FennecMetadata[mdList.size()]);
         return topMds;
     }
@@ -134,10 +182,7 @@ public class FennecMode {
                 cmds = initMetadataMap(mds, n);
             } else {
                 initMetadataMap(mds, n);
-                ArrayList<FennecMetadata> aMeta = metadataMap.get(n);
-                if (aMeta != null) {
-                    cmds = (FennecMetadata[]) aMeta.toArray(new FennecMetadata[aMeta.size()]);
-                }
+                cmds = metadataMap.get(n);
             }
         }
         FennecMetadata md = FennecGeneratedMetadata.generate(baseMetadata, this, n, cmds);
@@ -145,11 +190,39 @@ public class FennecMode {
         return TreeItemFennec.newTreeItem(md, pItem, n);
     }
 
-    private void registMetadata(HashMap<Node, ArrayList<FennecMetadata>> metaMap, FennecMetadata meta, Node base) {
-        NodeList list = meta.query(base);
-        
-        for (int i = 0; i < list.getLength(); i++) {
-            Node node = list.item(i);
+    private static Document getDocument(Node n) {
+        if (n instanceof Document)
+            return (Document) n;
+        return n.getOwnerDocument();
+    }
+
+    private static void addMetadataQueries(IQueryMatcher<FennecMetadata> matcher, FennecMetadata[] mds) {
+        for (int i = 0; i < mds.length; i++) {
+            if (!mds[i].hasTargets())
+                continue;
+            matcher.add(mds[i].getQuery(), mds[i]);
+            if (mds[i] instanceof FennecBundleMetadata) {
+                addMetadataQueries(matcher, ((FennecBundleMetadata) mds[i]).childMetadata);
+            }
+        }
+    }
+
+    private void registMetadata(HashMap<Node, ArrayList<FennecMetadata>> metaMap,
+                                Map<FennecMetadata, List<Node>> matched, Document doc,
+                                FennecMetadata meta, Node base) {
+        List<Node> list = matched.get(meta);
+        if ((list == null) || (getDocument(base) != doc)) {
+            // The query could not be combined or the base is in another frame.
+            NodeList nl = meta.query(base);
+            list = new ArrayList<Node>();
+            Node n;
+            for (int i = 0; (n = nl.item(i)) != null; i++) {
+                list.add(n);
+            }
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            Node node = list.get(i);
             ArrayList<FennecMetadata> aMeta = metaMap.get(node);
             if (aMeta == null) {
                 aMeta = new ArrayList<FennecMetadata>();
@@ -159,7 +232,7 @@ public class FennecMode {
                 FennecMetadata[] m = ((FennecBundleMetadata) meta).childMetadata;
                 for (int j = 0; j < m.length; j++) {
                     if (m[j].hasTargets()) {
-                        registMetadata(metaMap, m[j], node);
+                        registMetadata(metaMap, matched, doc, m[j], node);
                     } else {
                         aMeta.add(m[j]);
                     }
@@ -168,11 +241,13 @@ public class FennecMode {
         }
     }
 
-    private List autoAttach(TreeItemFennec pItem, NodeList nl, int len, int trigger) throws FennecException {
-        List l = new ArrayList(len);
+    // The nodes are read by item() until null, since getLength() evaluates the
+    // whole lazy result at once.
+    private List autoAttach(TreeItemFennec pItem, NodeList nl, int trigger) throws FennecException {
+        List l = new ArrayList();
 
-        for (int i = 0; i < len; i++) {
-            Node n = nl.item(i);
+        Node n;
+        for (int i = 0; (n = nl.item(i)) != null; i++) {
             /*
              if (n instanceof CacheableNode) {
              CachableNode cn = (CachableNode) cn;
@@ -197,14 +272,15 @@ public class FennecMode {
         return l;
     }
 
-    private List manualAttach(TreeItemFennec pItem, NodeList nl, int len, int trigger) throws FennecException {
-        List l = new ArrayList(len);
+    private List manualAttach(TreeItemFennec pItem, NodeList nl, int trigger) throws FennecException {
+        List l = new ArrayList();
 
         FennecMetadata[] childMds = baseMetadata.getChildMetadata();
-        for (int j = 0; j < len; j++) {
+        Node n;
+        for (int j = 0; (n = nl.item(j)) != null; j++) {
             for (int i = 0; i < childMds.length; i++) {
                 FennecMetadata md = childMds[i];
-                List l2 = md.buildItems(pItem, nl.item(j), trigger);
+                List l2 = md.buildItems(pItem, n, trigger);
                 if (l2 != null) {
                     if (l2.size() > 0) {
                         l.addAll(l2);
@@ -218,31 +294,37 @@ public class FennecMode {
         return l;
     }
 
-    private List unwrap(TreeItemFennec pItem, NodeList nl, int len, int trigger) {
+    private List unwrap(TreeItemFennec pItem, NodeList nl, int trigger) {
         //TODO
         return null;
     }
 
-    // TODO:
-    private HashMap cachedResult = new HashMap();
+    private static final int MAX_CACHED_RESULTS = 1024;
+
+    private static final int MAX_CACHED_ITEMS = 16384;
+
+    private final FennecResultCache cachedResult = new FennecResultCache(MAX_CACHED_RESULTS, MAX_CACHED_ITEMS);
 
     List expand(TreeItemFennec pItem, Node baseNode, int trigger) throws FennecException {
         if ((trigger != TRIGGER_KEEP) && ((trigger & this.trigger) == 0)) {
             return null;
         }
-        Object key;
+        Node key;
         if (baseNode != null) {
             key = baseNode;
         } else if (pItem == null) {
             key = null;
         } else {
-            key = pItem.getBaseNode();
+            key = (Node) pItem.getBaseNode();
         }
-        if (!changed(pItem, trigger)) {
-            List l = (List) cachedResult.get(key);
-            if (l != null)
-                return l;
+        int generation = getGeneration();
+        FennecResultCache.Entry cached = cachedResult.get(key, generation);
+        if ((cached != null) && (cached.result != null) && !changed(key, cached.stamp, trigger)) {
+            cachedResult.countHit();
+            return cached.result;
         }
+        cachedResult.countMiss();
+        int stamp = getStamp();
 
         NodeList nl;
         if (baseNode != null) {
@@ -250,22 +332,22 @@ public class FennecMode {
         } else {
             nl = baseMetadata.query(pItem);
         }
-        int len = nl.getLength();
         List result = null;
         switch (type) {
         case TYPE_ATTACH:
-            if (len == 0) {
+            // The result is evaluated lazily, so only the first node is read here.
+            if (nl.item(0) == null) {
                 if (this.trigger == TRIGGER_CLICK) {
                     throw new FennecInterruptedException("Could not attach the expected nodes.");
                 }
                 return null;
             }
             if (automatic) {
-                result = autoAttach(pItem, nl, len, trigger);
+                result = autoAttach(pItem, nl, trigger);
             } else {
-                result = manualAttach(pItem, nl, len, trigger);
+                result = manualAttach(pItem, nl, trigger);
             }
-            cachedResult.put(key, result);
+            cachedResult.put(key, result, stamp, generation);
             return result;
         case TYPE_UNWRAP:
             // TODO;
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import org.eclipse.actf.ai.fennec.FennecException;
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+import org.eclipse.swt.widgets.Display;
+
+
+/**
+ * Expands the items around the current item in advance, so that the next
+ * move finds its subtree built. The live DOM can only be accessed on the UI
+ * thread, so the expansion runs there in short slices posted by
+ * {@link Display#asyncExec(Runnable)}, and user input is processed between
+ * the slices. An expansion cannot be interrupted, so a slice expands only a
+ * few items and stops early when the next expansion is likely to overrun the
+ * budget. The expanded children are kept in the items and in the result
+ * caches of the modes, as the expansion by a search does.
+ */
+class FennecPrefetcher {
+    // The number of items expanded forward and backward.
+    private static final int RANGE = 16;
+
+    // The maximum number of items expanded by a job.
+    private static final int MAX_ITEMS = 256;
+
+    private static final long SLICE_MILLIS = 10;
+
+    // The maximum number of items expanded by a slice.
+    private static final int MAX_STEPS_PER_SLICE = 4;
+
+    private final FennecChangeTracker changeTracker;
+
+    private Job currentJob;
+
+    FennecPrefetcher(FennecChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+
+    private class Job implements Runnable {
+        private final Display display;
+
+        private final TreeItemFennec item;
+
+        private final int stamp;
+
+        private FennecSearchCursor forward;
+
+        private FennecSearchCursor backward;
+
+        private int forwardCount;
+
+        private int backwardCount;
+
+        private int childIndex = -1;
+
+        private int expanded;
+
+        Job(Display display, TreeItemFennec item) {
+            this.display = display;
+            this.item = item;
+            this.stamp = changeTracker.getStamp();
+        }
+
+        private boolean isCancelled() {
+            return (currentJob != this) || (changeTracker.getStamp() != stamp) || display.isDisposed();
+        }
+
+        // Returns false when the job is completed.
+        private boolean step() throws FennecException {
+            if (expanded >= MAX_ITEMS)
+                return false;
+            expanded++;
+            if (childIndex < 0) {
+                item.expandChildItems(FennecMode.TRIGGER_KEEP);
+                childIndex = 0;
+                return true;
+            }
+            ITreeItem[] childItems = item.getChildItems();
+            if (childIndex < childItems.length) {
+                ((TreeItemFennec) childItems[childIndex++]).expandChildItems(FennecMode.TRIGGER_KEEP);
+                return true;
+            }
+            if (forwardCount < RANGE) {
+                if (forward == null)
+                    forward = new FennecSearchCursor(item, false);
+                if (forward.next() != null) {
+                    forwardCount++;
+                    return true;
+                }
+                forwardCount = RANGE;
+            }
+            if (backwardCount < RANGE) {
+                if (backward == null)
+                    backward = new FennecSearchCursor(item, true);
+                if (backward.next() != null) {
+                    backwardCount++;
+                    return true;
+                }
+                backwardCount = RANGE;
+            }
+            return false;
+        }
+
+        public void run() {
+            if (isCancelled())
+                return;
+            long start = System.currentTimeMillis();
+            long limit = start + SLICE_MILLIS;
+            try {
+                for (int i = 0; i < MAX_STEPS_PER_SLICE; i++) {
+                    if (!step()) {
+                        finish();
+                        return;
+                    }
+                    // Expect the next expansion to take as long as the
+                    // average one of this slice.
+                    long now = System.currentTimeMillis();
+                    if (now + (now - start) / (i + 1) >= limit)
+                        break;
+                }
+            } catch (FennecException e) {
+                // The page is changing. The next move will expand the items.
+                finish();
+                return;
+            }
+            display.asyncExec(this);
+        }
+
+        private void finish() {
+            if (currentJob == this)
+                currentJob = null;
+        }
+    }
+
+    /**
+     * Start prefetching around the item, cancelling the previous job. This
+     * method must be called on the UI thread.
+     */
+    void schedule(TreeItemFennec item) {
+        Display display = Display.getCurrent();
+        if ((display == null) || (item == null)) {
+            currentJob = null;
+            return;
+        }
+        currentJob = new Job(display, item);
+        display.asyncExec(currentJob);
+    }
+
+    void cancel() {
+        currentJob = null;
+    }
+}
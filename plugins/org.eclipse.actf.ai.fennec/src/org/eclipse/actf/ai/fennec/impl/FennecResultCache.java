@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Node;
+
+
+/**
+ * LRU cache of the expansion results of a {@link FennecMode}. The budget is
+ * given by the number of entries and by the total number of tree items held by
+ * the cached results. All the entries are dropped when the document generation
+ * changes so that detached DOM nodes are not kept.
+ */
+class FennecResultCache {
+    static class Entry {
+        final List result;
+
+        final int stamp;
+
+        Entry(List result, int stamp) {
+            this.result = result;
+            this.stamp = stamp;
+        }
+
+        int getWeight() {
+            if (result == null)
+                return 1;
+            return result.size() + 1;
+        }
+    }
+
+    private final int maxEntries;
+
+    private final int maxWeight;
+
+    private final LinkedHashMap<Node, Entry> map = new LinkedHashMap<Node, Entry>(16, 0.75f, true);
+
+    private int weight;
+
+    private int generation;
+
+    private FennecStatistics statistics;
+
+    FennecResultCache(int maxEntries, int maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    void setStatistics(FennecStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    void countHit() {
+        if (statistics != null)
+            statistics.resultHits++;
+    }
+
+    void countMiss() {
+        if (statistics != null)
+            statistics.resultMisses++;
+    }
+
+    private void checkGeneration(int generation) {
+        if (this.generation == generation)
+            return;
+        if (statistics != null)
+            statistics.resultInvalidations += map.size();
+        map.clear();
+        weight = 0;
+        this.generation = generation;
+    }
+
+    Entry get(Node key, int generation) {
+        checkGeneration(generation);
+        return map.get(key);
+    }
+
+    void put(Node key, List result, int stamp, int generation) {
+        checkGeneration(generation);
+        Entry entry = new Entry(result, stamp);
+        Entry old = map.put(key, entry);
+        if (old != null) {
+            weight -= old.getWeight();
+        }
+        weight += entry.getWeight();
+
+        Iterator<Map.Entry<Node, Entry>> it = map.entrySet().iterator();
+        while (((map.size() > maxEntries) || (weight > maxWeight)) && it.hasNext()) {
+            Map.Entry<Node, Entry> eldest = it.next();
+            if (eldest.getValue() == entry)
+                break;
+            weight -= eldest.getValue().getWeight();
+            it.remove();
+            if (statistics != null)
+                statistics.resultEvictions++;
+        }
+    }
+}
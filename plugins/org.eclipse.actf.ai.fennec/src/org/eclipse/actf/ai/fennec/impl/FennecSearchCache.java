@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.HashMap;
+
+import org.eclipse.actf.util.vocab.IProposition;
+
+
+/**
+ * The last search by proposition and direction. The cursor of a search is
+ * kept at the found item, so the next search from the found item resumes it.
+ * No item between the start and the found item satisfies the proposition, so
+ * a search from any of those items has the same result. A search is only
+ * valid for the stamp of the change tracker at which it was made. The
+ * searches that found nothing are not kept, since the items they would
+ * reach may not have been expanded yet.
+ */
+class FennecSearchCache {
+    private static final int MAX_PROPOSITIONS = 64;
+
+    private static class Key {
+        final IProposition proposition;
+
+        final boolean backward;
+
+        final int stamp;
+
+        Key(IProposition proposition, boolean backward, int stamp) {
+            this.proposition = proposition;
+            this.backward = backward;
+            this.stamp = stamp;
+        }
+
+        public int hashCode() {
+            return proposition.hashCode() * 31 + stamp * 2 + (backward ? 1 : 0);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return k.proposition.equals(proposition) && (k.backward == backward) && (k.stamp == stamp);
+        }
+    }
+
+    static class Search {
+        private final int[] startPath;
+
+        private final FennecSearchCursor cursor;
+
+        private final TreeItemFennec found;
+
+        private final int[] foundPath;
+
+        Search(int[] startPath, FennecSearchCursor cursor, TreeItemFennec found, int[] foundPath) {
+            this.startPath = startPath;
+            this.cursor = cursor;
+            this.found = found;
+            this.foundPath = foundPath;
+        }
+
+        TreeItemFennec getFound() {
+            return found;
+        }
+
+        /**
+         * @return true if the search from the item at the path has the same
+         *         result.
+         */
+        boolean covers(int[] path, boolean backward) {
+            int d = FennecJumpIndex.compare(path, startPath);
+            if (backward ? (d > 0) : (d < 0))
+                return false;
+            d = FennecJumpIndex.compare(path, foundPath);
+            return backward ? (d > 0) : (d < 0);
+        }
+
+        /**
+         * @return the cursor if it is at the item, or null.
+         */
+        FennecSearchCursor getCursorAt(TreeItemFennec item) {
+            if ((found != item) || (cursor.getCurrent() != item))
+                return null;
+            return cursor;
+        }
+    }
+
+    private final HashMap<Key, Search> searches = new HashMap<Key, Search>();
+
+    private int stamp = -1;
+
+    Search get(IProposition proposition, boolean backward, int stamp) {
+        if (this.stamp != stamp)
+            return null;
+        return searches.get(new Key(proposition, backward, stamp));
+    }
+
+    void put(IProposition proposition, boolean backward, int stamp, Search search) {
+        // The searches of the previous stamps are never used again.
+        if ((this.stamp != stamp) || (searches.size() >= MAX_PROPOSITIONS * 2)) {
+            searches.clear();
+            this.stamp = stamp;
+        }
+        searches.put(new Key(proposition, backward, stamp), search);
+    }
+
+    void clear() {
+        searches.clear();
+    }
+}
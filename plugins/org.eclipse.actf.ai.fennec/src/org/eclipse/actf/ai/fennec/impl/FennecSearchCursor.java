@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import org.eclipse.actf.ai.fennec.FennecException;
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+
+
+/**
+ * Iterates the live Fennec tree in document order from a start item, which is
+ * not included. Children are expanded on demand as the cursor goes down. The
+ * parent links of the items are used as the traversal stack, so deeply nested
+ * trees do not consume the Java stack, and the cursor can be kept and resumed
+ * by subsequent calls of {@link #next()}.
+ */
+class FennecSearchCursor {
+    private TreeItemFennec current;
+
+    private final boolean backward;
+
+    private boolean first = true;
+
+    FennecSearchCursor(TreeItemFennec start, boolean backward) {
+        this.current = start;
+        this.backward = backward;
+    }
+
+    TreeItemFennec getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return the next item in the search direction, or null if the cursor
+     *         reaches the end of the tree.
+     */
+    TreeItemFennec next() throws FennecException {
+        if (current == null)
+            return null;
+        if (backward) {
+            current = previousItem(current);
+        } else {
+            current = nextItem(current);
+        }
+        first = false;
+        return current;
+    }
+
+    private TreeItemFennec nextItem(TreeItemFennec item) throws FennecException {
+        item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+        ITreeItem[] childItems = item.getChildItems();
+        if (childItems.length > 0)
+            return (TreeItemFennec) childItems[0];
+        for (;;) {
+            TreeItemFennec pItem = (TreeItemFennec) item.getParent();
+            if (pItem == null)
+                return null;
+            ITreeItem[] siblings = pItem.getChildItems();
+            int nth = item.getNth() + 1;
+            if (nth < siblings.length)
+                return (TreeItemFennec) siblings[nth];
+            item = pItem;
+        }
+    }
+
+    private TreeItemFennec previousItem(TreeItemFennec item) throws FennecException {
+        TreeItemFennec pItem = (TreeItemFennec) item.getParent();
+        if (pItem == null)
+            return null;
+        int nth = item.getNth() - 1;
+        if (nth < 0)
+            return pItem;
+        if (first) {
+            pItem = pItem.expandChildItems(FennecMode.TRIGGER_KEEP);
+        }
+        ITreeItem[] siblings = pItem.getChildItems();
+        if (siblings.length == 0)
+            return pItem;
+        if (nth >= siblings.length) {
+            nth = siblings.length - 1;
+        }
+        item = (TreeItemFennec) siblings[nth];
+
+        while (true) {
+            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+            ITreeItem[] childItems = item.getChildItems();
+            if (childItems.length == 0)
+                break;
+            item = (TreeItemFennec) childItems[childItems.length - 1];
+        }
+        return item;
+    }
+}
@@ -10,16 +10,24 @@
  *******************************************************************************/
 package org.eclipse.actf.ai.fennec.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
 import org.eclipse.actf.ai.fennec.IFennecEntry;
 import org.eclipse.actf.ai.fennec.IFennecService;
+import org.eclipse.actf.ai.fennec.DocumentAnalysisService;
 import org.eclipse.actf.ai.fennec.FennecException;
 import org.eclipse.actf.ai.fennec.FennecInterruptedException;
 import org.eclipse.actf.ai.fennec.treemanager.IAccessKeyList;
 import org.eclipse.actf.ai.fennec.treemanager.ISoundControl;
+import org.eclipse.actf.ai.fennec.treemanager.ITableCell;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeManager;
 import org.eclipse.actf.ai.fennec.treemanager.IVideoControl;
+import org.eclipse.actf.ai.fennec.treemanager.IndexedProposition;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerException;
+import org.eclipse.actf.ai.internal.fennec.FennecPlugin;
 import org.eclipse.actf.ai.query.IQuery;
 import org.eclipse.actf.ai.query.QueryService;
 import org.eclipse.actf.model.dom.dombycom.AnalyzedResult;
@@ -28,7 +36,10 @@ import org.eclipse.actf.model.dom.dombycom.IFlashNode;
 import org.eclipse.actf.model.dom.dombycom.INodeEx;
 import org.eclipse.actf.util.vocab.IProposition;
 import org.eclipse.actf.util.vocab.Vocabulary;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.graphics.Rectangle;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 
 public class FennecServiceImpl implements IFennecService {
@@ -44,10 +55,58 @@ public class FennecServiceImpl implements IFennecService {
 
     private AnalyzedResult analyzedResult;
 
+    private final FennecChangeTracker changeTracker;
+
+    private final FennecSearchCache searchCache = new FennecSearchCache();
+
+    private final FennecPrefetcher prefetcher;
+
+    private static final int MAX_JUMP_INDEXES = 32;
+
+    private final ArrayList<FennecJumpIndex> jumpIndexes = new ArrayList<FennecJumpIndex>();
+
+    private final FennecIndexBuilder indexBuilder;
+
     Element getDocumentElement() {
         return root;
     }
 
+    FennecChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    // The version of the depths kept by the items of this service.
+    private int depthVersion;
+
+    int getDepthVersion() {
+        return depthVersion;
+    }
+
+    /**
+     * Invalidate the depths of all the items, e.g. after an item with
+     * children moves to another level.
+     */
+    void incrementDepthVersion() {
+        depthVersion++;
+    }
+
+    // null unless the statistics are enabled by the tracing option.
+    private final FennecStatistics statistics = FennecPlugin.isStatisticsEnabled() ? new FennecStatistics() : null;
+
+    FennecStatistics getStatistics() {
+        return statistics;
+    }
+
+    private FennecLayoutIndex layoutIndex;
+
+    FennecLayoutIndex getLayoutIndex() {
+        int generation = changeTracker.getGeneration();
+        if ((layoutIndex == null) || (layoutIndex.getGeneration() != generation)) {
+            layoutIndex = new FennecLayoutIndex(generation);
+        }
+        return layoutIndex;
+    }
+
     private void initDefaultMetadata() {
         FennecMode rootMode = new FennecMode(FennecMode.TYPE_SIMPLE);
         FennecMode nextMode = new FennecMode(FennecMode.TYPE_ATTACH, FennecMode.TRIGGER_ALWAYS, true, false, false);
@@ -63,6 +122,9 @@ public class FennecServiceImpl implements IFennecService {
     public FennecServiceImpl(IFennecEntry entry, IDocumentEx document) throws FennecException {
         this.document = document;
         this.root = document.getDocumentElement();
+        this.changeTracker = new FennecChangeTracker(document);
+        this.prefetcher = new FennecPrefetcher(changeTracker);
+        this.indexBuilder = new FennecIndexBuilder(this);
         try {
             FennecDOMReader reader = new FennecDOMReader(this);
             rootMetadata = reader.parse(entry);
@@ -75,6 +137,9 @@ public class FennecServiceImpl implements IFennecService {
     public FennecServiceImpl(IDocumentEx document) {
         this.document = document;
         this.root = document.getDocumentElement();
+        this.changeTracker = new FennecChangeTracker(document);
+        this.prefetcher = new FennecPrefetcher(changeTracker);
+        this.indexBuilder = new FennecIndexBuilder(this);
         initDefaultMetadata();
     }
 
@@ -83,15 +148,32 @@ public class FennecServiceImpl implements IFennecService {
     }
 
     public int analyze() throws FennecException {
-        analyzedResult = new AnalyzedResult();
-        if (root instanceof INodeEx) {
-            cachedVideoControl = null;
-            cachedSoundControl = null;
-            analyzedResult = ((INodeEx) root).analyze(analyzedResult);
-        }
+        setAnalyzedResult(DocumentAnalysisService.reanalyze(root));
         return ITreeManager.NOACTION;
     }
 
+    // The whole document may have changed, so the analysis shared with the
+    // other consumers is also dropped. The tracker drops the id indexes.
+    private void markAllDirty() {
+        changeTracker.markAllDirty();
+        DocumentAnalysisService.invalidate(root);
+    }
+
+    private void setAnalyzedResult(AnalyzedResult result) {
+        prefetcher.cancel();
+        indexBuilder.cancel();
+        changeTracker.markAllDirty();
+        layoutIndex = null;
+        lineIndex = null;
+        tables.clear();
+        activeCell = null;
+        analyzedResult = result;
+        cachedVideoControl = null;
+        cachedSoundControl = null;
+        cachedAccessKeyList = null;
+        cachedFlashTopNodes = null;
+    }
+
     private ISoundControl cachedSoundControl;
 
     private IVideoControl cachedVideoControl;
@@ -101,9 +183,19 @@ public class FennecServiceImpl implements IFennecService {
     private IFlashNode[] cachedFlashTopNodes;
 
     public int initialize() throws FennecException {
+        if (statistics != null)
+            System.err.println("Fennec statistics: " + statistics);
         if (analyzedResult == null) {
+            // A new service analyzes the page again, and the result is shared
+            // with the other consumers.
             analyze();
+        } else {
+            markAllDirty();
         }
+        return buildRoot();
+    }
+
+    private int buildRoot() throws FennecException {
         lastItem = rootMetadata.buildRootItem();
         if (lastItem == null) {
             throw new FennecException("Failed to initialize", null);
@@ -116,10 +208,44 @@ public class FennecServiceImpl implements IFennecService {
         return lastItem;
     }
 
+    /**
+     * Follow the path of nth indexes from the root of the live tree. If
+     * <i>exact</i> is true, null is returned when the path does not exist.
+     */
+    private TreeItemFennec resolvePath(int[] path, boolean exact) throws FennecException {
+        TreeItemFennec item = getRootItem();
+        for (int i = 0; i < path.length; i++) {
+            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+            ITreeItem[] childItems = item.getChildItems();
+            int nth = path[i];
+            if (nth >= childItems.length) {
+                if (exact)
+                    return null;
+                if (childItems.length == 0)
+                    break;
+                nth = childItems.length - 1;
+            }
+            item = (TreeItemFennec) childItems[nth];
+        }
+        return item;
+    }
+
+    static int[] getPath(ITreeItem item) {
+        int depth = TreeItemFennec.depthOf(item);
+        int[] path = new int[depth];
+        for (; depth > 0; depth--) {
+            path[depth - 1] = item.getNth();
+            item = item.getParent();
+        }
+        return path;
+    }
+
     private int update(ITreeItem target, int trigger) throws FennecException {
         TreeItemFennec targetItem = (TreeItemFennec) target;
         if (targetItem.getParent() == null) {
-            return initialize();
+            if (status != NORMAL)
+                return initialize();
+            return buildRoot();
         } else {
             targetItem = targetItem.expand(trigger);
             if (targetItem == null) {
@@ -131,6 +257,7 @@ public class FennecServiceImpl implements IFennecService {
             throw new FennecInterruptedException("Lost my way"); // $ NON-NLS-1
         }
         lastItem = targetItem;
+        prefetcher.schedule(targetItem);
         return ITreeManager.MOVED;
     }
 
@@ -147,37 +274,127 @@ public class FennecServiceImpl implements IFennecService {
     }
 
     public int clickUpdate(ITreeItem target) throws FennecException {
+        // A click may change any part of the document.
+        markAllDirty();
         return update(target, FennecMode.TRIGGER_CLICK) | ITreeManager.CLICKED;
     }
 
-    private int searchForwardChildren(int idx, TreeItemFennec item, IProposition proposition) throws FennecException {
-        int st;
-        item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
-        ITreeItem[] childItems = item.getChildItems();
-        for (int i = idx; i < childItems.length; i++) {
-            TreeItemFennec cItem = (TreeItemFennec) childItems[i];
-            if (proposition.eval(cItem)) {
-                return moveUpdate(cItem) | ITreeManager.FOUND;
+    private TreeItemFennec getRootItem() {
+        TreeItemFennec item = lastItem;
+        while (item.getParent() != null) {
+            item = (TreeItemFennec) item.getParent();
+        }
+        return item;
+    }
+
+    private boolean isAttached(TreeItemFennec item) {
+        ITreeItem current = item;
+        for (ITreeItem parent = current.getParent(); parent != null; parent = current.getParent()) {
+            ITreeItem[] siblings = parent.getChildItems();
+            int nth = current.getNth();
+            if ((nth >= siblings.length) || (siblings[nth] != current))
+                return false;
+            current = parent;
+        }
+        return current == getRootItem();
+    }
+
+    /**
+     * @return the index of the proposition, or null if the index is not
+     *         complete. Then the stale indexes are filled in the background.
+     */
+    private FennecJumpIndex getJumpIndex(IndexedProposition proposition) throws FennecException {
+        FennecJumpIndex index = null;
+        for (FennecJumpIndex ji : jumpIndexes) {
+            if (ji.getProposition() == proposition) {
+                index = ji;
+                break;
             }
-            st = searchForwardChildren(0, cItem, proposition);
-            if ((st & ITreeManager.FOUND) != 0)
-                return st;
         }
-        return ITreeManager.NOACTION;
+        if (index == null) {
+            if (jumpIndexes.size() >= MAX_JUMP_INDEXES) {
+                indexBuilder.cancel();
+                jumpIndexes.clear();
+            }
+            index = new FennecJumpIndex(proposition);
+            jumpIndexes.add(index);
+        }
+        if (index.isValid(changeTracker.getGeneration())) {
+            updateJumpIndex(index);
+            return index;
+        }
+        indexBuilder.schedule(getRootItem(), index, jumpIndexes, lineIndex);
+        return null;
     }
 
-    private int searchForwardInternal(int idx, TreeItemFennec item, IProposition proposition) throws FennecException {
-        int st = searchForwardChildren(idx, item, proposition);
-        if ((st & ITreeManager.FOUND) != 0)
-            return st;
-        TreeItemFennec pItem = (TreeItemFennec) item.getParent();
-        if (pItem == null)
-            return ITreeManager.NOACTION;
-        st = searchForwardInternal(item.getNth() + 1, pItem, proposition);
-        if ((st & ITreeManager.FOUND) != 0)
-            return st;
+    // Collects the entries under the changed items again.
+    private void updateJumpIndex(FennecJumpIndex index) throws FennecException {
+        for (int[] path : index.takeChangedPaths()) {
+            FennecJumpIndex part = new FennecJumpIndex(index.getProposition());
+            TreeItemFennec scope = resolvePath(path, true);
+            if (scope != null) {
+                int depth = scope.getDepth();
+                FennecSearchCursor cursor = new FennecSearchCursor(scope, false);
+                for (TreeItemFennec item = scope; item != null; item = cursor.next()) {
+                    if ((item != scope) && (item.getDepth() <= depth))
+                        break;
+                    if (index.getProposition().eval(item))
+                        part.add(getPath(item));
+                }
+            }
+            index.replace(path, part);
+        }
+    }
 
-        return ITreeManager.NOACTION;
+    // Returns the first item satisfying the proposition after the start item
+    // in the direction, or null.
+    private TreeItemFennec find(TreeItemFennec start, IProposition proposition, boolean backward)
+            throws FennecException {
+        if (proposition instanceof IndexedProposition) {
+            FennecJumpIndex index = getJumpIndex((IndexedProposition) proposition);
+            if (index != null) {
+                int[] path = getPath(start);
+                int[] foundPath = backward ? index.findPrevious(path) : index.findNext(path);
+                if (foundPath == null)
+                    return null;
+                TreeItemFennec found = resolvePath(foundPath, true);
+                if ((found != null) && proposition.eval(found))
+                    return found;
+            }
+            // The index is being built or the tree has been rebuilt in a
+            // different shape, so search the tree.
+        }
+
+        int stamp = changeTracker.getStamp();
+        int[] startPath = getPath(start);
+        FennecSearchCache.Search last = searchCache.get(proposition, backward, stamp);
+        FennecSearchCursor cursor = null;
+        if (last != null) {
+            if (last.covers(startPath, backward)) {
+                TreeItemFennec found = last.getFound();
+                if (isAttached(found))
+                    return found;
+            }
+            cursor = last.getCursorAt(start);
+        }
+        if (cursor == null)
+            cursor = new FennecSearchCursor(start, backward);
+
+        for (TreeItemFennec item = cursor.next(); item != null; item = cursor.next()) {
+            if (proposition.eval(item)) {
+                searchCache.put(proposition, backward, stamp, new FennecSearchCache.Search(startPath, cursor, item,
+                        getPath(item)));
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private int search(TreeItemFennec start, IProposition proposition, boolean backward) throws FennecException {
+        TreeItemFennec found = find(start, proposition, backward);
+        if (found == null)
+            return ITreeManager.NOACTION;
+        return moveUpdate(found) | ITreeManager.FOUND;
     }
 
     public ITreeItem[] getSiblings() throws TreeManagerException {
@@ -191,44 +408,11 @@ public class FennecServiceImpl implements IFennecService {
     }
 
     public int searchForward(IProposition proposition) throws FennecException {
-        return searchForwardInternal(0, lastItem, proposition);
-    }
-
-    private int searchBackwardInternal(boolean first, TreeItemFennec item, IProposition proposition) throws FennecException {
-        TreeItemFennec pItem = (TreeItemFennec) item.getParent();
-        if (pItem == null)
-            return ITreeManager.NOACTION;
-        int nth = item.getNth() - 1;
-        if (nth < 0) {
-            if (proposition.eval(pItem)) {
-                return moveUpdate(pItem) | ITreeManager.FOUND;
-            }
-            return searchBackwardInternal(false, pItem, proposition);
-        }
-        if (first) {
-            pItem = pItem.expandChildItems(FennecMode.TRIGGER_KEEP);
-        }
-        ITreeItem[] siblings = pItem.getChildItems();
-        if (nth >= siblings.length) {
-            nth = siblings.length - 1;
-        }
-        item = (TreeItemFennec) siblings[nth];
-
-        while (true) {
-            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
-            ITreeItem[] childItems = item.getChildItems();
-            if (childItems.length == 0)
-                break;
-            item = (TreeItemFennec) childItems[childItems.length - 1];
-        }
-        if (proposition.eval(item)) {
-            return moveUpdate(item) | ITreeManager.FOUND;
-        }
-        return searchBackwardInternal(false, item, proposition);
+        return search(lastItem, proposition, false);
     }
 
     public int searchBackward(IProposition predicate) throws FennecException {
-        return searchBackwardInternal(true, lastItem, predicate);
+        return search(lastItem, predicate, true);
     }
 
     public ISoundControl getSoundControl() {
@@ -259,11 +443,35 @@ public class FennecServiceImpl implements IFennecService {
         return cachedFlashTopNodes;
     }
 
-    private void expandWholeTreeInternal(TreeItemFennec item) throws FennecException {
-        item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
-        ITreeItem[] childItems = item.getChildItems();
-        for (int i = 0; i < childItems.length; i++) {
-            expandWholeTreeInternal((TreeItemFennec) childItems[i]);
+    private void expandWholeTreeInternal(TreeItemFennec item, IProgressMonitor monitor) throws FennecException {
+        // An explicit stack is used since the tree can be very deep.
+        ArrayList<TreeItemFennec> stack = new ArrayList<TreeItemFennec>();
+        stack.add(item);
+        long start = System.currentTimeMillis();
+        int count = 0;
+        try {
+            while (stack.size() > 0) {
+                if ((monitor != null) && monitor.isCanceled())
+                    throw new FennecInterruptedException("The expansion was cancelled.");
+                item = stack.remove(stack.size() - 1);
+                item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+                ITreeItem[] childItems = item.getChildItems();
+                for (int i = childItems.length - 1; i >= 0; i--) {
+                    stack.add((TreeItemFennec) childItems[i]);
+                }
+                count++;
+                if ((monitor != null) && (count % 100 == 0)) {
+                    monitor.worked(100);
+                    long elapsed = System.currentTimeMillis() - start;
+                    if (elapsed > 0)
+                        monitor.subTask(count + " items (" + (count * 1000L / elapsed) + " items/s)");
+                }
+            }
+        } finally {
+            if (statistics != null) {
+                statistics.expandedItems += count;
+                statistics.expansionMillis += System.currentTimeMillis() - start;
+            }
         }
     }
 
@@ -280,11 +488,427 @@ public class FennecServiceImpl implements IFennecService {
     }
 
     public ITreeItem expandWholeTree() throws FennecException {
+        return expandWholeTree(null);
+    }
+
+    public ITreeItem expandWholeTree(IProgressMonitor monitor) throws FennecException {
         initialize();
-        if (lastItem instanceof TreeItemFennec) {
-            expandWholeTreeInternal((TreeItemFennec) lastItem);
+        if (monitor != null)
+            monitor.beginTask("Expanding the tree", IProgressMonitor.UNKNOWN);
+        try {
+            if (lastItem instanceof TreeItemFennec) {
+                expandWholeTreeInternal((TreeItemFennec) lastItem, monitor);
+            }
+        } finally {
+            if (monitor != null)
+                monitor.done();
         }
         return lastItem;
     }
 
+    private static TreeItemFennec getLastDescendant(TreeItemFennec item) throws FennecException {
+        for (;;) {
+            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+            ITreeItem[] childItems = item.getChildItems();
+            if (childItems.length == 0)
+                return item;
+            item = (TreeItemFennec) childItems[childItems.length - 1];
+        }
+    }
+
+    // Returns the first item of the connectable siblings including the item.
+    private static TreeItemFennec getIntervalStart(TreeItemFennec item) {
+        ITreeItem parent = item.getParent();
+        if (parent == null)
+            return item;
+        ITreeItem[] siblings = parent.getChildItems();
+        int idx = item.getNth() - 1;
+        for (; idx >= 0; idx--) {
+            if (!Vocabulary.isConnectable().eval(siblings[idx]))
+                break;
+        }
+        return (TreeItemFennec) siblings[idx + 1];
+    }
+
+    public int gotoAccessKey(char key) throws FennecException {
+        IndexedProposition proposition = ((TreeItemAccessKeyList) getAccessKeyList()).getProposition(key);
+        if (proposition == null)
+            return ITreeManager.NOACTION;
+        // The first item after the current one is the target, and the search
+        // wraps around to the beginning of the page.
+        TreeItemFennec found = find(lastItem, proposition, false);
+        if (found == null) {
+            found = find(getRootItem(), proposition, false);
+            if ((found == null) || (found == lastItem))
+                return ITreeManager.NOACTION;
+        }
+        return moveUpdate(found);
+    }
+
+    public int gotoPosition(int[] path) throws FennecException {
+        TreeItemFennec item = getRootItem();
+        int level = 0;
+        for (; level < path.length; level++) {
+            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+            ITreeItem[] childItems = item.getChildItems();
+            if (path[level] >= childItems.length)
+                break;
+            item = (TreeItemFennec) childItems[path[level]];
+        }
+        int st = moveUpdate(item);
+        if (level == 0)
+            return ITreeManager.NOACTION;
+        return st;
+    }
+
+    public int gotoEndOfPage(boolean readingContent) throws FennecException {
+        // The target is found on the expanded structure, and only the target
+        // is updated.
+        TreeItemFennec target = getLastDescendant(getRootItem());
+        if (readingContent && !Vocabulary.hasReadingContent().eval(target)) {
+            FennecSearchCursor cursor = new FennecSearchCursor(target, true);
+            TreeItemFennec item = cursor.next();
+            while ((item != null) && !Vocabulary.hasReadingContent().eval(item)) {
+                item = cursor.next();
+            }
+            if (item != null)
+                target = getIntervalStart(item);
+        }
+        int st = moveUpdate(target);
+        if ((st & ITreeManager.MOVED) != 0)
+            st |= ITreeManager.LEVEL_CHANGED;
+        return st;
+    }
+
+    // null until a line move is requested.
+    private FennecLineIndex lineIndex;
+
+    /**
+     * Called when the base node of the item is changed by the item.
+     */
+    void itemChanged(ITreeItem item) {
+        int[] path = getPath(item);
+        for (FennecJumpIndex ji : jumpIndexes) {
+            ji.itemChanged(path);
+        }
+        if (lineIndex != null)
+            lineIndex.itemChanged(path);
+        if ((layoutIndex != null) && (item.getBaseNode() instanceof Node))
+            layoutIndex.nodeChanged((Node) item.getBaseNode());
+    }
+
+    private Rectangle getLocation(TreeItemFennec item) throws FennecException {
+        Object o = item.getBaseNode();
+        if (!(o instanceof INodeEx))
+            return null;
+        return getLayoutIndex().getLocation((INodeEx) o);
+    }
+
+    // Returns the item if it is a text-bearing leaf item, or null.
+    private TreeItemFennec getLineItem(TreeItemFennec item) throws FennecException {
+        item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+        if (item.hasChild())
+            return null;
+        if (!Vocabulary.hasReadingContent().eval(item))
+            return null;
+        return item;
+    }
+
+    /**
+     * Adds the item to the line index if it is a text-bearing leaf item.
+     */
+    void addLine(TreeItemFennec item, FennecLineIndex index) throws FennecException {
+        item = getLineItem(item);
+        if (item != null)
+            index.add(getPath(item), getLocation(item));
+    }
+
+    // Adds the text-bearing leaf items under the scope item.
+    private void collectLines(TreeItemFennec scope, FennecLineIndex index) throws FennecException {
+        int depth = scope.getDepth();
+        FennecSearchCursor cursor = new FennecSearchCursor(scope, false);
+        for (TreeItemFennec item = scope; item != null; item = cursor.next()) {
+            if ((item != scope) && (item.getDepth() <= depth))
+                break;
+            addLine(item, index);
+        }
+    }
+
+    /**
+     * @return the line index, or null if the index is not complete. Then the
+     *         index is filled in the background together with the stale jump
+     *         indexes. After a change by an item, only the lines under the item
+     *         are collected again.
+     */
+    private FennecLineIndex getLineIndex() throws FennecException {
+        if (lineIndex == null)
+            lineIndex = new FennecLineIndex();
+        if (!lineIndex.isValid(changeTracker.getGeneration())) {
+            indexBuilder.schedule(getRootItem(), lineIndex, jumpIndexes, lineIndex);
+            return null;
+        }
+        for (int[] path : lineIndex.takeChangedPaths()) {
+            FennecLineIndex part = new FennecLineIndex();
+            TreeItemFennec item = resolvePath(path, true);
+            if (item != null)
+                collectLines(item, part);
+            lineIndex.replace(path, part);
+        }
+        return lineIndex;
+    }
+
+    private int moveToLine(int delta, boolean end) throws FennecException {
+        FennecLineIndex index = getLineIndex();
+        if (index == null)
+            return moveToNearbyLine(delta, end);
+        if (index.size() == 0)
+            return ITreeManager.NOACTION;
+        int[] path = getPath(lastItem);
+        int idx = index.indexOf(path);
+        int line;
+        if (idx < 0) {
+            // The current item precedes all the lines.
+            line = (delta > 0) ? delta - 1 : delta;
+        } else {
+            line = index.getLine(idx) + delta;
+        }
+        if ((line < 0) || (line >= index.getLineCount()))
+            return ITreeManager.NOACTION;
+        int[] targetPath = end ? index.getLineEnd(line) : index.getLineStart(line);
+        if (FennecJumpIndex.compare(targetPath, path) == 0)
+            return ITreeManager.NOACTION;
+        TreeItemFennec target = resolvePath(targetPath, true);
+        if ((target == null) || target.hasChild()) {
+            // The tree has been rebuilt in a different shape.
+            lineIndex.reset();
+            return ITreeManager.NOACTION;
+        }
+        return moveUpdate(target);
+    }
+
+    /**
+     * Moves by walking the tree from the current item while the line index is
+     * being filled. The walk stops at the first line boundary beyond the
+     * target line, so it does not expand the whole tree.
+     */
+    private int moveToNearbyLine(int delta, boolean end) throws FennecException {
+        if (!(lastItem instanceof TreeItemFennec))
+            return ITreeManager.NOACTION;
+        boolean backward = (delta < 0) || ((delta == 0) && !end);
+        int crossings = Math.abs(delta);
+        FennecSearchCursor cursor = new FennecSearchCursor((TreeItemFennec) lastItem, backward);
+        Rectangle last = getLocation((TreeItemFennec) lastItem);
+        TreeItemFennec target = null;
+        for (TreeItemFennec item = cursor.next(); item != null; item = cursor.next()) {
+            TreeItemFennec lineItem = getLineItem(item);
+            if (lineItem == null)
+                continue;
+            Rectangle location = getLocation(lineItem);
+            boolean newLine = (location != null) && (last != null) && !FennecLineIndex.isAligned(location, last);
+            if (location != null)
+                last = location;
+            if (newLine) {
+                if (crossings == 0)
+                    break;
+                crossings--;
+                // The first item after a line boundary starts the next line.
+                if ((delta > 0) && (crossings == 0))
+                    return moveUpdate(lineItem);
+            }
+            target = lineItem;
+        }
+        if ((crossings > 0) || (target == null))
+            return ITreeManager.NOACTION;
+        return moveUpdate(target);
+    }
+
+    public int gotoPreviousLine() throws FennecException {
+        return moveToLine(-1, false);
+    }
+
+    public int gotoNextLine() throws FennecException {
+        return moveToLine(1, false);
+    }
+
+    public int gotoStartOfLine() throws FennecException {
+        return moveToLine(0, false);
+    }
+
+    public int gotoEndOfLine() throws FennecException {
+        return moveToLine(0, true);
+    }
+
+    private final HashMap<Node, TableImpl> tables = new HashMap<Node, TableImpl>();
+
+    private int tablesGeneration;
+
+    // The slot reached by the last cell move, to keep the row or the column
+    // while passing through spanned cells.
+    private TableCellImpl activeCell;
+
+    private TableImpl getTable(Element tableElement) {
+        int generation = changeTracker.getGeneration();
+        if (tablesGeneration != generation) {
+            tables.clear();
+            tablesGeneration = generation;
+        }
+        TableImpl table = tables.get(tableElement);
+        if (table == null) {
+            table = new TableImpl(this, tableElement);
+            tables.put(tableElement, table);
+        }
+        return table;
+    }
+
+    // Returns the cell element of the table which contains the node, or null.
+    private static Node getCellOf(Object o, TableImpl table) {
+        if (!(o instanceof Node))
+            return null;
+        Element tableElement = table.getTableElement();
+        for (Node n = (Node) o; (n != null) && (n != tableElement); n = n.getParentNode()) {
+            if (TableImpl.isCellElement(n) && (table.getCell((Element) n) != null))
+                return n;
+        }
+        return null;
+    }
+
+    // Only the items under the nearest item containing the table are walked.
+    private HashMap<Node, int[]> collectCellPaths(TableImpl table) throws FennecException {
+        Element tableElement = table.getTableElement();
+        TreeItemFennec scope = getRootItem();
+        for (ITreeItem item = lastItem; item != null; item = item.getParent()) {
+            Object o = item.getBaseNode();
+            if ((o instanceof Node) && (getCellOf(o, table) == null) && isAncestor((Node) o, tableElement)) {
+                scope = (TreeItemFennec) item;
+                break;
+            }
+        }
+        int depth = scope.getDepth();
+        HashMap<Node, int[]> paths = new HashMap<Node, int[]>();
+        FennecSearchCursor cursor = new FennecSearchCursor(scope, false);
+        for (TreeItemFennec item = scope; item != null; item = cursor.next()) {
+            if ((item != scope) && (item.getDepth() <= depth))
+                break;
+            item = item.expandChildItems(FennecMode.TRIGGER_KEEP);
+            Node cell = getCellOf(item.getBaseNode(), table);
+            if ((cell != null) && !paths.containsKey(cell))
+                paths.put(cell, getPath(item));
+        }
+        return paths;
+    }
+
+    private static boolean isAncestor(Node ancestor, Node n) {
+        for (; n != null; n = n.getParentNode()) {
+            if (n == ancestor)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the first item of the cell in document order, or null. The
+     *         items of a table are mapped to its cells at the first request,
+     *         and the map is collected again only when a path is stale.
+     */
+    TreeItemFennec findCellItem(TableImpl table, Element cell) throws FennecException {
+        int stamp = changeTracker.getStamp();
+        HashMap<Node, int[]> paths = table.getItemPaths();
+        if (paths == null) {
+            paths = collectCellPaths(table);
+            table.setItemPaths(paths, stamp);
+        }
+        int[] path = paths.get(cell);
+        if (path != null) {
+            TreeItemFennec item = resolvePath(path, true);
+            if ((item != null) && (getCellOf(item.getBaseNode(), table) == cell))
+                return item;
+        }
+        if (table.getItemPathsStamp() == stamp)
+            return null;
+        paths = collectCellPaths(table);
+        table.setItemPaths(paths, stamp);
+        path = paths.get(cell);
+        if (path == null)
+            return null;
+        return resolvePath(path, true);
+    }
+
+    private TableCellImpl getActiveCell() {
+        Node n = null;
+        for (ITreeItem item = lastItem; (item != null) && (n == null); item = item.getParent()) {
+            Object o = item.getBaseNode();
+            if (o instanceof Node)
+                n = (Node) o;
+        }
+        for (; n != null; n = n.getParentNode()) {
+            if (!TableImpl.isCellElement(n))
+                continue;
+            Element tableElement = TableImpl.getTableElement((Element) n);
+            if (tableElement == null)
+                continue;
+            TableCellImpl cell = getTable(tableElement).getCell((Element) n);
+            if ((cell != null) && (activeCell != null) && (activeCell.getOrigin() == cell))
+                return activeCell;
+            return cell;
+        }
+        return null;
+    }
+
+    public ITableCell getActiveTableCell() throws FennecException {
+        return getActiveCell();
+    }
+
+    private int moveToCell(int dRow, int dColumn) throws FennecException {
+        TableCellImpl cell = getActiveCell();
+        if (cell == null)
+            return ITreeManager.NOACTION;
+        TableImpl table = cell.getTable();
+        TableCellImpl origin = cell.getOrigin();
+        int row = cell.getRow();
+        int column = cell.getColumn();
+        if (dRow > 0) {
+            row = origin.getRow() + origin.getRowSpan();
+        } else if (dRow < 0) {
+            row = origin.getRow() - 1;
+        }
+        if (dColumn > 0) {
+            column = origin.getColumn() + origin.getColSpan();
+        } else if (dColumn < 0) {
+            column = origin.getColumn() - 1;
+        }
+
+        int[] path = getPath(lastItem);
+        while ((row >= 0) && (row < table.getRowSize()) && (column >= 0) && (column < table.getColumnSize())) {
+            TableCellImpl target = table.getCell(row, column);
+            row += dRow;
+            column += dColumn;
+            // Skip the slots not covered by any cell and the cells without items.
+            if ((target == null) || (target.getOrigin() == origin))
+                continue;
+            TreeItemFennec item = findCellItem(table, target.getElement());
+            if ((item == null) || (FennecJumpIndex.compare(getPath(item), path) == 0))
+                continue;
+            int r = moveUpdate(item);
+            if ((r & ITreeManager.MOVED) != 0)
+                activeCell = target;
+            return r;
+        }
+        return ITreeManager.NOACTION;
+    }
+
+    public int gotoLeftCell() throws FennecException {
+        return moveToCell(0, -1);
+    }
+
+    public int gotoRightCell() throws FennecException {
+        return moveToCell(0, 1);
+    }
+
+    public int gotoUpCell() throws FennecException {
+        return moveToCell(-1, 0);
+    }
+
+    public int gotoDownCell() throws FennecException {
+        return moveToCell(1, 0);
+    }
 }
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+
+/**
+ * Counters of the caches of a Fennec service. They are collected only if the
+ * "debug/statistics" tracing option of the plug-in is enabled, and they are
+ * printed when the service is initialized again.
+ */
+class FennecStatistics {
+    int resultHits;
+
+    int resultMisses;
+
+    int resultEvictions;
+
+    int resultInvalidations;
+
+    int uiStringHits;
+
+    int uiStringExtractions;
+
+    long expandedItems;
+
+    long expansionMillis;
+
+    @Override
+    public String toString() {
+        long rate = (expansionMillis > 0) ? (expandedItems * 1000L / expansionMillis) : 0;
+        return "results: hits=" + resultHits + ", misses=" + resultMisses + ", evictions=" + resultEvictions
+                + ", invalidations=" + resultInvalidations + "; UI strings: hits=" + uiStringHits
+                + ", extractions=" + uiStringExtractions + "; expansion: items=" + expandedItems
+                + ", itemsPerSecond=" + rate;
+    }
+}
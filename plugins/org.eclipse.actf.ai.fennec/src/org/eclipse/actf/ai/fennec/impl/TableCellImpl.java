@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import org.eclipse.actf.ai.fennec.treemanager.ITableCell;
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+import org.w3c.dom.Element;
+
+
+/**
+ * A slot of the table grid. A cell spanning several slots is represented by
+ * its origin slot, and the other slots refer to the origin.
+ */
+class TableCellImpl implements ITableCell {
+    private final TableImpl table;
+
+    private final TableCellImpl origin;
+
+    private final Element element;
+
+    private final int row;
+
+    private final int column;
+
+    private final int rowSpan;
+
+    private final int colSpan;
+
+    private final boolean rowHeader;
+
+    private final boolean columnHeader;
+
+    TableCellImpl(TableImpl table, Element element, int row, int column, int rowSpan, int colSpan) {
+        this.table = table;
+        this.origin = this;
+        this.element = element;
+        this.row = row;
+        this.column = column;
+        this.rowSpan = rowSpan;
+        this.colSpan = colSpan;
+        if (TableImpl.isElement(element, "TH")) {
+            String scope = element.getAttribute("scope");
+            this.rowHeader = !"col".equalsIgnoreCase(scope) && !"colgroup".equalsIgnoreCase(scope);
+            this.columnHeader = !"row".equalsIgnoreCase(scope) && !"rowgroup".equalsIgnoreCase(scope);
+        } else {
+            this.rowHeader = false;
+            this.columnHeader = false;
+        }
+    }
+
+    TableCellImpl(TableCellImpl origin, int row, int column) {
+        this.table = origin.table;
+        this.origin = origin;
+        this.element = origin.element;
+        this.row = row;
+        this.column = column;
+        this.rowSpan = origin.rowSpan;
+        this.colSpan = origin.colSpan;
+        this.rowHeader = origin.rowHeader;
+        this.columnHeader = origin.columnHeader;
+    }
+
+    TableImpl getTable() {
+        return table;
+    }
+
+    TableCellImpl getOrigin() {
+        return origin;
+    }
+
+    Element getElement() {
+        return element;
+    }
+
+    int getRowSpan() {
+        return rowSpan;
+    }
+
+    int getColSpan() {
+        return colSpan;
+    }
+
+    boolean isRowHeader() {
+        return rowHeader;
+    }
+
+    boolean isColumnHeader() {
+        return columnHeader;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public ITreeItem getItem() {
+        return table.getItem(element);
+    }
+
+    public boolean isConnectedWithUpCell() {
+        return origin.row < row;
+    }
+
+    public boolean isConnectedWithLeftCell() {
+        return origin.column < column;
+    }
+
+    public ITreeItem getRowHeader() {
+        TableCellImpl header = table.getRowHeader(row, column);
+        if (header == null)
+            return null;
+        return header.getItem();
+    }
+
+    public ITreeItem getColumnHeader() {
+        TableCellImpl header = table.getColumnHeader(row, column);
+        if (header == null)
+            return null;
+        return header.getItem();
+    }
+
+    public boolean isHeader() {
+        return rowHeader || columnHeader;
+    }
+}
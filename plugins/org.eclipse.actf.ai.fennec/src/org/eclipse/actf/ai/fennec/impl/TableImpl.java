@@ -12,31 +12,286 @@
 
 package org.eclipse.actf.ai.fennec.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.eclipse.actf.ai.fennec.FennecException;
 import org.eclipse.actf.ai.fennec.treemanager.ITable;
 import org.eclipse.actf.ai.fennec.treemanager.ITableRow;
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 
 
+/**
+ * Table model built from a TABLE element. The rows and cells are resolved
+ * once into a dense grid in which a cell spanning several rows or columns
+ * occupies all of its slots, and the row and column headers of every slot
+ * are computed at the same time, so the cell moves and the header lookups
+ * do not traverse the DOM.
+ */
 public class TableImpl implements ITable {
-    private FennecTableMetadata tableMetadata;
+    private static final int MAX_COLSPAN = 1000;
+
+    private static final int MAX_ROWSPAN = 65534;
+
+    private final FennecServiceImpl fennecService;
+
+    private final Element tableElement;
+
+    private int rowSize;
+
+    private int columnSize;
+
+    // Slots in row-major order. A slot is null if no cell covers it.
+    private TableCellImpl[] slots;
+
+    private TableCellImpl[] rowHeaders;
+
+    private TableCellImpl[] columnHeaders;
+
+    private TableRowImpl[] rows;
+
+    private final HashMap<Node, TableCellImpl> origins = new HashMap<Node, TableCellImpl>();
+
+    // The paths of the first items of the cells. They are collected by
+    // FennecServiceImpl at the first request for an item of the table.
+    private HashMap<Node, int[]> itemPaths;
+
+    private int itemPathsStamp;
+
+    TableImpl(FennecServiceImpl fennecService, Element tableElement) {
+        this.fennecService = fennecService;
+        this.tableElement = tableElement;
+        build();
+    }
+
+    static boolean isElement(Node n, String name) {
+        return (n != null) && (n.getNodeType() == Node.ELEMENT_NODE) && name.equalsIgnoreCase(n.getNodeName());
+    }
+
+    static boolean isCellElement(Node n) {
+        return isElement(n, "TD") || isElement(n, "TH");
+    }
+
+    /**
+     * @return the TABLE element of the cell element, or null.
+     */
+    static Element getTableElement(Element cell) {
+        Node p = cell.getParentNode();
+        if (!isElement(p, "TR"))
+            return null;
+        p = p.getParentNode();
+        if (isElement(p, "THEAD") || isElement(p, "TBODY") || isElement(p, "TFOOT"))
+            p = p.getParentNode();
+        if (!isElement(p, "TABLE"))
+            return null;
+        return (Element) p;
+    }
+
+    // Returns 0 only if <i>zero</i> is allowed and the value is 0.
+    private static int getSpan(Element e, String name, int max, boolean zero) {
+        String v = e.getAttribute(name);
+        if ((v == null) || (v.length() == 0))
+            return 1;
+        try {
+            int span = Integer.parseInt(v.trim());
+            if ((span == 0) && zero)
+                return 0;
+            if (span < 1)
+                return 1;
+            return Math.min(span, max);
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+
+    /**
+     * Collect the TR elements. groupEnds[i] is set to the index following the
+     * last row of the row group of the i-th row, since a cell cannot span
+     * beyond its row group. The TR elements directly in the TABLE element
+     * form a group between the other groups.
+     */
+    private void collectRows(ArrayList<Element> rows, ArrayList<Integer> groupEnds) {
+        for (Node n = tableElement.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (isElement(n, "TR")) {
+                rows.add((Element) n);
+            } else if (isElement(n, "THEAD") || isElement(n, "TBODY") || isElement(n, "TFOOT")) {
+                closeGroup(rows.size(), groupEnds);
+                for (Node m = n.getFirstChild(); m != null; m = m.getNextSibling()) {
+                    if (isElement(m, "TR"))
+                        rows.add((Element) m);
+                }
+                closeGroup(rows.size(), groupEnds);
+            }
+        }
+        closeGroup(rows.size(), groupEnds);
+    }
+
+    private static void closeGroup(int end, ArrayList<Integer> groupEnds) {
+        Integer e = Integer.valueOf(end);
+        while (groupEnds.size() < end) {
+            groupEnds.add(e);
+        }
+    }
+
+    private static TableCellImpl[] ensureWidth(TableCellImpl[] row, int width) {
+        if (row.length >= width)
+            return row;
+        TableCellImpl[] newRow = new TableCellImpl[Math.max(width, row.length * 2)];
+        System.arraycopy(row, 0, newRow, 0, row.length);
+        return newRow;
+    }
+
+    private void build() {
+        ArrayList<Element> trs = new ArrayList<Element>();
+        ArrayList<Integer> groupEnds = new ArrayList<Integer>();
+        collectRows(trs, groupEnds);
+
+        rowSize = trs.size();
+        ArrayList<TableCellImpl[]> grid = new ArrayList<TableCellImpl[]>(rowSize);
+        for (int r = 0; r < rowSize; r++) {
+            grid.add(new TableCellImpl[8]);
+        }
+        for (int r = 0; r < rowSize; r++) {
+            int groupEnd = groupEnds.get(r).intValue();
+            int c = 0;
+            for (Node n = trs.get(r).getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (!isCellElement(n))
+                    continue;
+                Element e = (Element) n;
+                TableCellImpl[] row = grid.get(r);
+                while ((c < row.length) && (row[c] != null))
+                    c++;
+                int colSpan = getSpan(e, "colspan", MAX_COLSPAN, false);
+                int rowSpan = getSpan(e, "rowspan", MAX_ROWSPAN, true);
+                // rowspan="0" spans to the end of the row group.
+                if ((rowSpan == 0) || (r + rowSpan > groupEnd))
+                    rowSpan = groupEnd - r;
+                TableCellImpl origin = new TableCellImpl(this, e, r, c, rowSpan, colSpan);
+                origins.put(e, origin);
+                for (int i = 0; i < rowSpan; i++) {
+                    TableCellImpl[] spanned = ensureWidth(grid.get(r + i), c + colSpan);
+                    grid.set(r + i, spanned);
+                    for (int j = 0; j < colSpan; j++) {
+                        if (spanned[c + j] == null)
+                            spanned[c + j] = (i == 0 && j == 0) ? origin : new TableCellImpl(origin, r + i, c + j);
+                    }
+                }
+                c += colSpan;
+                columnSize = Math.max(columnSize, c);
+            }
+        }
+
+        slots = new TableCellImpl[rowSize * columnSize];
+        for (int r = 0; r < rowSize; r++) {
+            TableCellImpl[] row = grid.get(r);
+            System.arraycopy(row, 0, slots, r * columnSize, Math.min(row.length, columnSize));
+        }
+
+        // The header of a slot is the nearest header cell on the left or above.
+        rowHeaders = new TableCellImpl[slots.length];
+        columnHeaders = new TableCellImpl[slots.length];
+        for (int r = 0; r < rowSize; r++) {
+            TableCellImpl header = null;
+            for (int c = 0; c < columnSize; c++) {
+                int idx = r * columnSize + c;
+                TableCellImpl slot = slots[idx];
+                if ((slot != null) && (header != null) && (header != slot.getOrigin()))
+                    rowHeaders[idx] = header;
+                if ((slot != null) && slot.getOrigin().isRowHeader())
+                    header = slot.getOrigin();
+            }
+        }
+        for (int c = 0; c < columnSize; c++) {
+            TableCellImpl header = null;
+            for (int r = 0; r < rowSize; r++) {
+                int idx = r * columnSize + c;
+                TableCellImpl slot = slots[idx];
+                if ((slot != null) && (header != null) && (header != slot.getOrigin()))
+                    columnHeaders[idx] = header;
+                if ((slot != null) && slot.getOrigin().isColumnHeader())
+                    header = slot.getOrigin();
+            }
+        }
+
+        rows = new TableRowImpl[rowSize];
+        for (int r = 0; r < rowSize; r++) {
+            rows[r] = new TableRowImpl(this, r);
+        }
+    }
+
+    Element getTableElement() {
+        return tableElement;
+    }
+
+    TableCellImpl getCell(int row, int column) {
+        if ((row < 0) || (row >= rowSize) || (column < 0) || (column >= columnSize))
+            return null;
+        return slots[row * columnSize + column];
+    }
+
+    TableCellImpl getRowHeader(int row, int column) {
+        return rowHeaders[row * columnSize + column];
+    }
+
+    TableCellImpl getColumnHeader(int row, int column) {
+        return columnHeaders[row * columnSize + column];
+    }
+
+    /**
+     * @return the cell whose element is <i>e</i>, or null.
+     */
+    TableCellImpl getCell(Element e) {
+        return origins.get(e);
+    }
+
+    ITreeItem getItem(Element e) {
+        try {
+            return fennecService.findCellItem(this, e);
+        } catch (FennecException ex) {
+            return null;
+        }
+    }
+
+    HashMap<Node, int[]> getItemPaths() {
+        return itemPaths;
+    }
+
+    int getItemPathsStamp() {
+        return itemPathsStamp;
+    }
+
+    void setItemPaths(HashMap<Node, int[]> itemPaths, int stamp) {
+        this.itemPaths = itemPaths;
+        this.itemPathsStamp = stamp;
+    }
 
     public ITableRow getRow(int row) {
-        // TODO Auto-generated method stub
-        return null;
+        if ((row < 0) || (row >= rowSize))
+            return null;
+        return rows[row];
     }
 
     public int getColumnSize() {
-        // TODO Auto-generated method stub
-        return 0;
+        return columnSize;
     }
 
     public int getRowSize() {
-        // TODO Auto-generated method stub
-        return 0;
+        return rowSize;
     }
 
     public String getTableString() {
-        // TODO Auto-generated method stub
-        return null;
+        for (Node n = tableElement.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (isElement(n, "CAPTION")) {
+                String caption = NodeUtil.extractString(n);
+                if (caption != null)
+                    caption = caption.trim();
+                if ((caption != null) && (caption.length() > 0))
+                    return caption;
+            }
+        }
+        return tableElement.getAttribute("summary");
     }
 }
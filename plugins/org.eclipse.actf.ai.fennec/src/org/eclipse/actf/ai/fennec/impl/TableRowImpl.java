@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.impl;
+
+import java.util.ArrayList;
+
+import org.eclipse.actf.ai.fennec.treemanager.ITableCell;
+import org.eclipse.actf.ai.fennec.treemanager.ITableRow;
+
+
+class TableRowImpl implements ITableRow {
+    private final TableImpl table;
+
+    private final int row;
+
+    TableRowImpl(TableImpl table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    public ITableCell[] getTableCell() {
+        ArrayList<ITableCell> result = new ArrayList<ITableCell>();
+        int columnSize = table.getColumnSize();
+        for (int c = 0; c < columnSize; c++) {
+            TableCellImpl cell = table.getCell(row, c);
+            if (cell != null)
+                result.add(cell);
+        }
+        return result.toArray(new ITableCell[result.size()]);
+    }
+}
@@ -11,9 +11,19 @@
 
 package org.eclipse.actf.ai.fennec.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
 import org.eclipse.actf.ai.fennec.treemanager.IAccessKeyList;
+import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
+import org.eclipse.actf.ai.fennec.treemanager.IndexedProposition;
 import org.eclipse.actf.model.dom.dombycom.AnalyzedResult;
 import org.eclipse.actf.model.dom.dombycom.INodeEx;
+import org.eclipse.actf.util.vocab.IEvalTarget;
+import org.eclipse.actf.util.vocab.IProposition;
+import org.w3c.dom.Node;
 
 
 
@@ -21,25 +31,107 @@ import org.eclipse.actf.model.dom.dombycom.INodeEx;
 public class TreeItemAccessKeyList implements IAccessKeyList {
     INodeEx[] accessKeyNodes;
 
+    // The keys and the strings are fetched from the DOM once per analysis.
+    private final char[] keys;
+
+    private final String[] uiStrings;
+
+    private final HashMap<Character, List<INodeEx>> keyIndex = new HashMap<Character, List<INodeEx>>();
+
+    // The propositions are kept so that their jump indexes are reused.
+    private final HashMap<Character, IndexedProposition> propositions = new HashMap<Character, IndexedProposition>();
+
+    /**
+     * Satisfied by the topmost items in the elements declaring an access key,
+     * so that the next jump goes to the next element.
+     */
+    private static class AccessKeyProposition implements IProposition {
+        private final HashSet<Node> nodes;
+
+        AccessKeyProposition(List<INodeEx> nodes) {
+            this.nodes = new HashSet<Node>(nodes);
+        }
+
+        private Node getKeyNode(Object o) {
+            if (!(o instanceof Node))
+                return null;
+            for (Node n = (Node) o; n != null; n = n.getParentNode()) {
+                if (nodes.contains(n))
+                    return n;
+            }
+            return null;
+        }
+
+        public boolean eval(IEvalTarget target) {
+            if (!(target instanceof ITreeItem))
+                return false;
+            ITreeItem item = (ITreeItem) target;
+            Node keyNode = getKeyNode(item.getBaseNode());
+            if (keyNode == null)
+                return false;
+            ITreeItem parent = item.getParent();
+            return (parent == null) || (getKeyNode(parent.getBaseNode()) != keyNode);
+        }
+    }
+
     public TreeItemAccessKeyList(AnalyzedResult analyzedResult) {
         accessKeyNodes = analyzedResult.getAccessKeyNodes();
+        if (accessKeyNodes == null)
+            accessKeyNodes = new INodeEx[0];
+        keys = new char[accessKeyNodes.length];
+        uiStrings = new String[accessKeyNodes.length];
+        for (int i = 0; i < accessKeyNodes.length; i++) {
+            keys[i] = accessKeyNodes[i].getAccessKey();
+            String str = accessKeyNodes[i].extractString();
+            uiStrings[i] = (str != null) ? str.trim() : "";
+            Character c = toKey(keys[i]);
+            List<INodeEx> nodes = keyIndex.get(c);
+            if (nodes == null) {
+                nodes = new ArrayList<INodeEx>(1);
+                keyIndex.put(c, nodes);
+            }
+            nodes.add(accessKeyNodes[i]);
+        }
+    }
+
+    // Access keys are case-insensitive.
+    private static Character toKey(char key) {
+        return Character.valueOf(Character.toLowerCase(key));
     }
 
     public char getAccessKeyAt(int index) {
-        if (accessKeyNodes.length <= index)
+        if (keys.length <= index)
             return 0;
-        return accessKeyNodes[index].getAccessKey();
+        return keys[index];
     }
 
     public String getUIStringAt(int index) {
-        // TODO
-        return "";
+        if (uiStrings.length <= index)
+            return "";
+        return uiStrings[index];
     }
 
     public int size() {
         return accessKeyNodes.length;
     }
 
+    /**
+     * @return the proposition satisfied by the items of the elements
+     *         declaring the access key, or null if no element declares it.
+     */
+    IndexedProposition getProposition(char key) {
+        Character c = toKey(key);
+        IndexedProposition p = propositions.get(c);
+        if (p == null) {
+            List<INodeEx> nodes = keyIndex.get(c);
+            if (nodes == null)
+                return null;
+            p = new IndexedProposition(new AccessKeyProposition(nodes));
+            propositions.put(c, p);
+        }
+        return p;
+    }
+
     public static IAccessKeyList newAccessKeyList(AnalyzedResult analyzedResult) {
         return new TreeItemAccessKeyList(analyzedResult);
     }
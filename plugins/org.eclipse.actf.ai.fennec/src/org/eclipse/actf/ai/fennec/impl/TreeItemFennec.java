@@ -16,6 +16,7 @@ import org.eclipse.actf.ai.fennec.FennecException;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeManager;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerException;
+import org.eclipse.actf.ai.internal.fennec.IDepthItem;
 import org.eclipse.actf.ai.query.QueryService;
 import org.eclipse.actf.model.dom.dombycom.IElementEx;
 import org.eclipse.actf.model.dom.dombycom.INodeEx;
@@ -30,7 +31,7 @@ import org.w3c.dom.NodeList;
 
 
 // TODO I'd like to make it package-local.
-public class TreeItemFennec implements ITreeItem {
+public class TreeItemFennec implements ITreeItem, IDepthItem {
     static private final TreeItemFennec[] emptyChild = new TreeItemFennec[0];
 
     private Node baseNode;
@@ -43,10 +44,25 @@ public class TreeItemFennec implements ITreeItem {
 
     private boolean hasAlreadyChildRefreshed;
 
+    private int refreshedStamp;
+
     private int nth;
 
+    // The number of the ancestors. It is valid while depthVersion equals the
+    // depth version of the service. The version is incremented when an item
+    // with children moves to another level, instead of walking the subtree,
+    // and the depths are computed again on demand.
+    private int depth;
+
+    private int depthVersion = -1;
+
     private TreeItemTerms terms;
 
+    // cache of getUIString()
+    private String uiString;
+
+    private int uiStringStamp;
+
     // for terms
     int distance = 0;
     
@@ -57,7 +73,8 @@ public class TreeItemFennec implements ITreeItem {
         }
         if (!(baseNode instanceof IEvalTarget)) return null;
         IEvalTarget evalTarget = (IEvalTarget) baseNode;
-        return new TreeItemFennec(metadata, parent, baseNode, new TreeItemTerms(evalTarget)); 
+        FennecChangeTracker tracker = (metadata != null) ? metadata.fennecService.getChangeTracker() : null;
+        return new TreeItemFennec(metadata, parent, baseNode, new TreeItemTerms(evalTarget, tracker));
     }
 
     protected TreeItemFennec(FennecMetadata metadata,
@@ -84,8 +101,72 @@ public class TreeItemFennec implements ITreeItem {
         return nth;
     }
 
+    /**
+     * @return the number of the ancestors of the item. The root is 0.
+     */
+    static int depthOf(ITreeItem item) {
+        if (item instanceof TreeItemFennec)
+            return ((TreeItemFennec) item).getDepth();
+        int depth = 0;
+        for (ITreeItem p = item.getParent(); p != null; p = p.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * @return the number of the ancestors. The root is 0.
+     */
+    public int getDepth() {
+        if (metadata == null) {
+            // The item does not belong to a service, e.g. a mark, so count
+            // the ancestors up to the nearest one which keeps its depth.
+            int count = 0;
+            ITreeItem p = parent;
+            while ((p instanceof TreeItemFennec) && (((TreeItemFennec) p).metadata == null)) {
+                count++;
+                p = p.getParent();
+            }
+            return (p == null) ? count : depthOf(p) + count + 1;
+        }
+        int currentDepthVersion = metadata.fennecService.getDepthVersion();
+        if (depthVersion == currentDepthVersion)
+            return depth;
+        // Count the ancestors up to the nearest one whose depth is valid.
+        int count = 0;
+        ITreeItem p = parent;
+        while ((p instanceof TreeItemFennec) && (((TreeItemFennec) p).depthVersion != currentDepthVersion)) {
+            count++;
+            p = p.getParent();
+        }
+        int d = (p == null) ? count : depthOf(p) + count + 1;
+        depth = d;
+        depthVersion = currentDepthVersion;
+        p = parent;
+        for (int i = 1; i <= count; i++) {
+            TreeItemFennec item = (TreeItemFennec) p;
+            item.depth = d - i;
+            item.depthVersion = currentDepthVersion;
+            p = item.getParent();
+        }
+        return d;
+    }
+
+    // Called when the item is attached to another parent.
+    private void updateDepth() {
+        if (metadata == null)
+            return;
+        FennecServiceImpl service = metadata.fennecService;
+        int newDepth = (parent == null) ? 0 : depthOf(parent) + 1;
+        if ((childItems.length > 0) && (depthVersion == service.getDepthVersion()) && (depth != newDepth))
+            service.incrementDepthVersion();
+        depth = newDepth;
+        depthVersion = service.getDepthVersion();
+    }
+
     private void setAsRoot() {
         this.parent = null;
+        updateDepth();
     }
 
     private void setParent() {
@@ -93,6 +174,7 @@ public class TreeItemFennec implements ITreeItem {
             TreeItemFennec c = (TreeItemFennec) childItems[i];
             c.parent = this;
             c.nth = i;
+            c.updateDepth();
         }
     }
 
@@ -125,6 +207,7 @@ public class TreeItemFennec implements ITreeItem {
         for (j = 0; j < items.length; i++, j++) {
             TreeItemFennec c = (TreeItemFennec) items[j];
             c.parent = this;
+            c.updateDepth();
             newItems[i] = c;
         }
         this.childItems = newItems;
@@ -136,10 +219,25 @@ public class TreeItemFennec implements ITreeItem {
 
     public void forceParent(ITreeItem parent) {
         this.parent = parent;
+        updateDepth();
     }
 
-    void markRefreshedChild() {
+    void markRefreshedChild(int stamp) {
         hasAlreadyChildRefreshed = true;
+        refreshedStamp = stamp;
+    }
+
+    int getRefreshedStamp() {
+        return refreshedStamp;
+    }
+
+    private void markDirty() {
+        terms.clearMemo();
+        if ((metadata == null) || (baseNode == null))
+            return;
+        FennecChangeTracker tracker = metadata.fennecService.getChangeTracker();
+        tracker.markDirty(baseNode);
+        metadata.fennecService.itemChanged(this);
     }
 
     boolean hasAlreadyChildRefreshed() {
@@ -227,6 +325,25 @@ public class TreeItemFennec implements ITreeItem {
     }
 
     public String getUIString() {
+        FennecChangeTracker tracker = (metadata != null) ? metadata.fennecService.getChangeTracker() : null;
+        if (tracker == null)
+            return getUIStringInternal();
+        FennecStatistics statistics = metadata.fennecService.getStatistics();
+        if ((uiString != null) && !tracker.isChanged(baseNode, uiStringStamp)) {
+            if (statistics != null)
+                statistics.uiStringHits++;
+            return uiString;
+        }
+        if (statistics != null)
+            statistics.uiStringExtractions++;
+        int stamp = tracker.getStamp();
+        String r = getUIStringInternal();
+        uiString = r;
+        uiStringStamp = stamp;
+        return r;
+    }
+
+    private String getUIStringInternal() {
         if (metadata != null) {
             String r = metadata.getAltText(this);
             if (r == null)
@@ -351,6 +468,7 @@ public class TreeItemFennec implements ITreeItem {
     public int setText(String text) throws TreeManagerException {
         if (baseNode instanceof INodeEx) {
             ((INodeEx) baseNode).setText(text);
+            markDirty();
         }
         return ITreeManager.NOACTION;
     }
@@ -371,7 +489,12 @@ public class TreeItemFennec implements ITreeItem {
         FennecGeneratedMetadata meta = (FennecGeneratedMetadata) this.metadata;
         FennecGeneratedMetadata meta2 = (FennecGeneratedMetadata) item.metadata;
 
-        this.metadata = FennecGeneratedMetadata.generate(meta, meta2);
+        FennecMetadata merged = FennecGeneratedMetadata.generate(meta, meta2);
+        if (merged == meta)
+            return;
+        this.metadata = merged;
+        terms.clearMemo();
+        uiString = null;
     }
 
     
@@ -450,6 +573,7 @@ public class TreeItemFennec implements ITreeItem {
     public void setSelectedIndices(int[] indices) {
         if (baseNode instanceof ISelectElement) {
             ((ISelectElement) baseNode).setSelectedIndices(indices);
+            markDirty();
         }
     }
 
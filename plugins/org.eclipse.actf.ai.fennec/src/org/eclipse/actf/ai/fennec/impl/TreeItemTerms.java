@@ -25,9 +25,159 @@ import org.w3c.dom.Node;
 
 
 public class TreeItemTerms extends DelegationTerms {
+    // Classifications memoized per tree item. The states that a user can
+    // change, such as checked or visited, are not memoized.
+    private static final int HAS_CONTENT = 1 << 0;
+
+    private static final int HAS_READING_CONTENT = 1 << 1;
+
+    private static final int IS_LINK = 1 << 2;
+
+    private static final int IS_BUTTON = 1 << 3;
+
+    private static final int IS_CHECKBOX = 1 << 4;
+
+    private static final int IS_RADIO = 1 << 5;
+
+    private static final int IS_COMBOBOX = 1 << 6;
+
+    private static final int IS_TEXTBOX = 1 << 7;
+
+    private static final int IS_PASSWORD = 1 << 8;
+
+    private static final int IS_MULTILINE_EDIT = 1 << 9;
+
+    private static final int IS_FILE_EDIT = 1 << 10;
+
+    private static final int IS_CLICKABLE = 1 << 11;
+
+    private static final int IS_INPUTABLE = 1 << 12;
+
+    private static final int IS_SELECTABLE = 1 << 13;
+
+    private static final int IS_LIST_ITEM = 1 << 14;
+
+    private static final int IS_LIST_TOP = 1 << 15;
+
+    private static final int IS_MEDIA = 1 << 16;
+
+    private static final int IS_EMBEDDED_OBJECT = 1 << 17;
+
+    private static final int IS_MSAA_FLASH = 1 << 18;
+
+    private static final int IS_SELECT_OPTION = 1 << 19;
+
+    private static final int IS_REDUCIBLE = 1 << 20;
+
+    private static final int IS_MULTI_SELECTABLE = 1 << 21;
+
+    private static final int IS_IMAGE = 1 << 22;
+
+    // Terms without a delegation target may be shared by several items.
+    private final boolean memoizable;
+
+    private final FennecChangeTracker tracker;
+
+    private final Node node;
+
+    private int evaluatedFlags;
+
+    private int trueFlags;
+
+    private int memoStamp;
 
     public TreeItemTerms(IEvalTarget delegationTarget) {
+        this(delegationTarget, null);
+    }
+
+    /**
+     * @param tracker
+     *            the change tracker of the service. The memoized
+     *            classifications are forgotten when it reports a change of
+     *            the base node. They are not memoized without a tracker.
+     */
+    TreeItemTerms(IEvalTarget delegationTarget, FennecChangeTracker tracker) {
         super(delegationTarget);
+        this.memoizable = (delegationTarget instanceof Node) && (tracker != null);
+        this.tracker = tracker;
+        this.node = memoizable ? (Node) delegationTarget : null;
+    }
+
+    /**
+     * Forget the memoized classifications, e.g. after the base node is
+     * changed.
+     */
+    void clearMemo() {
+        evaluatedFlags = 0;
+        trueFlags = 0;
+    }
+
+    private boolean memo(int flag, IEvalTarget target) {
+        if (!memoizable)
+            return evaluate(flag, target);
+        if (evaluatedFlags != 0 && tracker.isChanged(node, memoStamp))
+            clearMemo();
+        if ((evaluatedFlags & flag) != 0)
+            return (trueFlags & flag) != 0;
+        if (evaluatedFlags == 0)
+            memoStamp = tracker.getStamp();
+        boolean value = evaluate(flag, target);
+        evaluatedFlags |= flag;
+        if (value)
+            trueFlags |= flag;
+        return value;
+    }
+
+    private boolean evaluate(int flag, IEvalTarget target) {
+        switch (flag) {
+        case HAS_CONTENT:
+            return hasContentInternal(target);
+        case HAS_READING_CONTENT:
+            return hasReadingContentInternal(target);
+        case IS_LINK:
+            return super.isLink(target);
+        case IS_BUTTON:
+            return super.isButton(target);
+        case IS_CHECKBOX:
+            return super.isCheckbox(target);
+        case IS_RADIO:
+            return super.isRadio(target);
+        case IS_COMBOBOX:
+            return super.isCombobox(target);
+        case IS_TEXTBOX:
+            return super.isTextbox(target);
+        case IS_PASSWORD:
+            return super.isPassword(target);
+        case IS_MULTILINE_EDIT:
+            return super.isMultilineEdit(target);
+        case IS_FILE_EDIT:
+            return super.isFileEdit(target);
+        case IS_CLICKABLE:
+            return super.isClickable(target);
+        case IS_INPUTABLE:
+            return super.isInputable(target);
+        case IS_SELECTABLE:
+            return super.isSelectable(target);
+        case IS_LIST_ITEM:
+            return super.isListItem(target);
+        case IS_LIST_TOP:
+            return super.isListTop(target);
+        case IS_MEDIA:
+            return super.isMedia(target);
+        case IS_EMBEDDED_OBJECT:
+            return super.isEmbeddedObject(target);
+        case IS_MSAA_FLASH:
+            return super.isMSAAFlash(target);
+        case IS_SELECT_OPTION:
+            return super.isSelectOption(target);
+        case IS_REDUCIBLE:
+            return super.isReducible(target);
+        case IS_MULTI_SELECTABLE:
+            return super.isMultiSelectable(target);
+        case IS_IMAGE:
+            return super.isImage(target);
+        }
+        throw new IllegalArgumentException();
     }
 
     private boolean isSymbol(char c) {
@@ -80,6 +230,10 @@ public class TreeItemTerms extends DelegationTerms {
 
     @Override
     public boolean hasContent(IEvalTarget target) {
+        return memo(HAS_CONTENT, target);
+    }
+
+    private boolean hasContentInternal(IEvalTarget target) {
         if (!(target instanceof ITreeItem))
             return false;
         ITreeItem item = (ITreeItem) target;
@@ -98,6 +252,10 @@ public class TreeItemTerms extends DelegationTerms {
 
     @Override
     public boolean hasReadingContent(IEvalTarget target) {
+        return memo(HAS_READING_CONTENT, target);
+    }
+
+    private boolean hasReadingContentInternal(IEvalTarget target) {
         if (!(target instanceof ITreeItem))
             return false;
         ITreeItem item = (ITreeItem) target;
@@ -128,6 +286,111 @@ public class TreeItemTerms extends DelegationTerms {
         return true;
     }
 
+    @Override
+    public boolean isLink(IEvalTarget target) {
+        return memo(IS_LINK, target);
+    }
+
+    @Override
+    public boolean isButton(IEvalTarget target) {
+        return memo(IS_BUTTON, target);
+    }
+
+    @Override
+    public boolean isCheckbox(IEvalTarget target) {
+        return memo(IS_CHECKBOX, target);
+    }
+
+    @Override
+    public boolean isRadio(IEvalTarget target) {
+        return memo(IS_RADIO, target);
+    }
+
+    @Override
+    public boolean isCombobox(IEvalTarget target) {
+        return memo(IS_COMBOBOX, target);
+    }
+
+    @Override
+    public boolean isTextbox(IEvalTarget target) {
+        return memo(IS_TEXTBOX, target);
+    }
+
+    @Override
+    public boolean isPassword(IEvalTarget target) {
+        return memo(IS_PASSWORD, target);
+    }
+
+    @Override
+    public boolean isMultilineEdit(IEvalTarget target) {
+        return memo(IS_MULTILINE_EDIT, target);
+    }
+
+    @Override
+    public boolean isFileEdit(IEvalTarget target) {
+        return memo(IS_FILE_EDIT, target);
+    }
+
+    @Override
+    public boolean isClickable(IEvalTarget target) {
+        return memo(IS_CLICKABLE, target);
+    }
+
+    @Override
+    public boolean isInputable(IEvalTarget target) {
+        return memo(IS_INPUTABLE, target);
+    }
+
+    @Override
+    public boolean isSelectable(IEvalTarget target) {
+        return memo(IS_SELECTABLE, target);
+    }
+
+    @Override
+    public boolean isListItem(IEvalTarget target) {
+        return memo(IS_LIST_ITEM, target);
+    }
+
+    @Override
+    public boolean isListTop(IEvalTarget target) {
+        return memo(IS_LIST_TOP, target);
+    }
+
+    @Override
+    public boolean isMedia(IEvalTarget target) {
+        return memo(IS_MEDIA, target);
+    }
+
+    @Override
+    public boolean isEmbeddedObject(IEvalTarget target) {
+        return memo(IS_EMBEDDED_OBJECT, target);
+    }
+
+    @Override
+    public boolean isMSAAFlash(IEvalTarget target) {
+        return memo(IS_MSAA_FLASH, target);
+    }
+
+    @Override
+    public boolean isSelectOption(IEvalTarget target) {
+        return memo(IS_SELECT_OPTION, target);
+    }
+
+    @Override
+    public boolean isReducible(IEvalTarget target) {
+        return memo(IS_REDUCIBLE, target);
+    }
+
+    @Override
+    public boolean isMultiSelectable(IEvalTarget target) {
+        return memo(IS_MULTI_SELECTABLE, target);
+    }
+
+    @Override
+    public boolean isImage(IEvalTarget target) {
+        return memo(IS_IMAGE, target);
+    }
+
     @Override
     public boolean isBlockJumpPointF(IEvalTarget node) {
         return isBlockJumpPoint(false, node);
@@ -189,8 +452,8 @@ public class TreeItemTerms extends DelegationTerms {
         if (nex == null || nex2 == null)
             return false;
 
-        Rectangle r = nex.getLocation();
-        Rectangle r2 = nex2.getLocation();
+        Rectangle r = getLocation(item, nex);
+        Rectangle r2 = getLocation(prev, nex2);
         if (r == null || r2 == null)
             return false;
 
@@ -225,6 +488,14 @@ public class TreeItemTerms extends DelegationTerms {
         return false;
     }
 
+    // The location is taken from the layout index of the page if possible.
+    private static Rectangle getLocation(TreeItemFennec item, INodeEx nex) {
+        FennecMetadata md = item.getMetadata();
+        if (md != null)
+            return md.fennecService.getLayoutIndex().getLocation(nex);
+        return nex.getLocation();
+    }
+
     private int distance(Rectangle r, Rectangle r2) {
         return (int) Math.sqrt(Math.abs(r.x - r2.x) * Math.abs(r.y - r2.y)) //
                 + Math.abs(r.x - r2.x) + Math.abs(r.y - r2.y);
@@ -12,6 +12,7 @@ package org.eclipse.actf.ai.fennec.treemanager;
 
 import org.eclipse.actf.ai.fennec.IFennecService;
 import org.eclipse.actf.util.vocab.IProposition;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
  * ITreeManager interface defines high level methods of Fennec tree
@@ -103,6 +104,17 @@ public interface ITreeManager {
 	 */
 	IAccessKeyList getAccessKeyList() throws TreeManagerException;
 
+	/**
+	 * The next item declaring the access key becomes active. The search wraps
+	 * around to the beginning of the document.
+	 * 
+	 * @param key
+	 *            the access key. The case is ignored.
+	 * @return the result code of the movement.
+	 * @throws TreeManagerException
+	 */
+	int gotoAccessKey(char key) throws TreeManagerException;
+
 	/**
 	 * @return the siblings of the current item.
 	 * @throws TreeManagerException
@@ -293,6 +305,13 @@ public interface ITreeManager {
 	 */
 	int getActiveTableCellInfo() throws TreeManagerException;
 
+	/**
+	 * @return the table cell including the current position, or null if the
+	 *         current position is not in a table.
+	 * @throws TreeManagerException
+	 */
+	ITableCell getActiveTableCell() throws TreeManagerException;
+
 	// Optional API.
 	/**
 	 * @return the root item of the document.
@@ -334,6 +353,17 @@ public interface ITreeManager {
 	 */
 	ITreeItem expandWholeTree() throws TreeManagerException;
 
+	/**
+	 * All tree items are expanded at once with reporting the progress.
+	 * 
+	 * @param monitor
+	 *            the monitor to report the progress and to cancel the
+	 *            expansion. It can be null.
+	 * @return the root item of the document.
+	 * @throws TreeManagerException
+	 */
+	ITreeItem expandWholeTree(IProgressMonitor monitor) throws TreeManagerException;
+
 	/**
 	 * Change the current position to the end of page without readable checking.
 	 * 
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.fennec.treemanager;
+
+import org.eclipse.actf.util.vocab.IEvalTarget;
+import org.eclipse.actf.util.vocab.IProposition;
+
+/**
+ * IndexedProposition marks a proposition used for jump navigation. The
+ * implementation of ITreeManager may keep an index of the items satisfying
+ * the proposition, so the instance should be kept and reused. The wrapped
+ * proposition must not depend on the search start or on any other state.
+ */
+public class IndexedProposition implements IProposition {
+	private final IProposition proposition;
+
+	/**
+	 * @param proposition
+	 *            the proposition to be indexed.
+	 */
+	public IndexedProposition(IProposition proposition) {
+		this.proposition = proposition;
+	}
+
+	/**
+	 * @return the wrapped proposition.
+	 */
+	public IProposition getProposition() {
+		return proposition;
+	}
+
+	public boolean eval(IEvalTarget node) {
+		return proposition.eval(node);
+	}
+}
@@ -18,14 +18,17 @@ import org.eclipse.actf.ai.fennec.FennecInterruptedException;
 import org.eclipse.actf.ai.fennec.treemanager.IAccessKeyList;
 import org.eclipse.actf.ai.fennec.treemanager.ILocation;
 import org.eclipse.actf.ai.fennec.treemanager.ISoundControl;
+import org.eclipse.actf.ai.fennec.treemanager.ITableCell;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeManager;
 import org.eclipse.actf.ai.fennec.treemanager.IVideoControl;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerException;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerInterruptedException;
+import org.eclipse.actf.ai.internal.fennec.IDepthItem;
 import org.eclipse.actf.model.dom.dombycom.IFlashNode;
 import org.eclipse.actf.util.vocab.IProposition;
 import org.eclipse.actf.util.vocab.Vocabulary;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 
 /**
@@ -39,10 +42,12 @@ public class TreeManagerImpl implements ITreeManager {
     }
 
     public int getLevel() throws TreeManagerException {
-        int i = 0;
         ITreeItem ita = getActiveItem();
         if (ita == null)
             return 0;
+        if (ita instanceof IDepthItem)
+            return ((IDepthItem) ita).getDepth();
+        int i = 0;
         while (true) {
             ita = ita.getParent();
             if (ita == null)
@@ -107,11 +112,12 @@ public class TreeManagerImpl implements ITreeManager {
     }
 
     private int gotoRoot() throws TreeManagerException {
+        initFennecService();
         ITreeItem parent = getActiveItem().getParent();
         if (parent == null)
             return ITreeManager.NOACTION;
-        while (gotoParent() != ITreeManager.NOACTION)
-            ;
+        // Move to the root directly instead of updating every ancestor.
+        moveUpdate(getCurrentRootItem(), true);
         return ITreeManager.MOVED | ITreeManager.LEVEL_CHANGED;
     }
 
@@ -219,56 +225,67 @@ public class TreeManagerImpl implements ITreeManager {
          return st;*/
     }
 
-    public int gotoEndOfPageForFind() throws TreeManagerException {
-        // TODO
-        int st;
-        this.gotoStartOfPage();
-        do {
-            st = this.gotoEndOfSiblings();
-        } while (this.gotoFirstChild() != ITreeManager.NOACTION);
+    private int gotoEndOfPage(boolean readingContent) throws TreeManagerException {
+        initFennecService();
+        try {
+            return fennecService.gotoEndOfPage(readingContent);
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the end of the page.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the end of the page.", e);
+        }
+    }
 
-        if ((st & ITreeManager.MOVED) != 0)
-            st |= ITreeManager.LEVEL_CHANGED;
-        return st;
+    public int gotoEndOfPageForFind() throws TreeManagerException {
+        return gotoEndOfPage(false);
     }
 
     public int gotoEndOfPage() throws TreeManagerException {
-        // TODO
-        int st;
-        this.gotoStartOfPage();
-        do {
-            st = this.gotoEndOfSiblings();
-        } while (this.gotoFirstChild() != ITreeManager.NOACTION);
-
-        ITreeItem item = getActiveItem();
-        while (!Vocabulary.hasReadingContent().eval(item)) {
-            st = this.traverse(true);
-            item = getActiveItem();
-        }
-
-        if ((st & ITreeManager.MOVED) != 0)
-            st |= ITreeManager.LEVEL_CHANGED;
-        return st;
+        return gotoEndOfPage(true);
     }
 
     public int gotoPreviousLine() throws TreeManagerException {
-        // TODO
-        return ITreeManager.NOACTION;
+        initFennecService();
+        try {
+            return fennecService.gotoPreviousLine();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move by line.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move by line.", e);
+        }
     }
 
     public int gotoNextLine() throws TreeManagerException {
-        // TODO
-        return ITreeManager.NOACTION;
+        initFennecService();
+        try {
+            return fennecService.gotoNextLine();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move by line.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move by line.", e);
+        }
     }
 
     public int gotoStartOfLine() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoStartOfLine();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move by line.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move by line.", e);
+        }
     }
 
     public int gotoEndOfLine() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoEndOfLine();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move by line.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move by line.", e);
+        }
     }
 
     private int findItem(boolean back, IProposition proposition) throws TreeManagerException {
@@ -339,18 +356,14 @@ public class TreeManagerImpl implements ITreeManager {
     }
 
     private int setActivePos(int[] indexes) throws TreeManagerException {
-        gotoRoot();
-        ITreeItem item;
-        int st = ITreeManager.NOACTION;
-        for (int i = 0; i < indexes.length; i++) {
-            item = getActiveItem();
-            ITreeItem[] children = item.getChildItems();
-            int idx = indexes[i];
-            if ((children == null) || (idx >= children.length))
-                break;
-            st |= moveUpdate(children[idx], true);
+        initFennecService();
+        try {
+            return fennecService.gotoPosition(indexes);
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to update by move.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to update by move.", e);
         }
-        return st;
     }
 
     public int findNext(IProposition proposition) throws TreeManagerException {
@@ -498,23 +511,47 @@ public class TreeManagerImpl implements ITreeManager {
     }
 
     public int gotoLeftCell() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoLeftCell();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the cell.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the cell.", e);
+        }
     }
 
     public int gotoRightCell() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoRightCell();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the cell.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the cell.", e);
+        }
     }
 
     public int gotoUpCell() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoUpCell();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the cell.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the cell.", e);
+        }
     }
 
     public int gotoDownCell() throws TreeManagerException {
-        // TODO Auto-generated method stub
-        return 0;
+        initFennecService();
+        try {
+            return fennecService.gotoDownCell();
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the cell.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the cell.", e);
+        }
     }
 
     public int getActiveTableInfo() throws TreeManagerException {
@@ -527,6 +564,15 @@ public class TreeManagerImpl implements ITreeManager {
         return 0;
     }
 
+    public ITableCell getActiveTableCell() throws TreeManagerException {
+        initFennecService();
+        try {
+            return fennecService.getActiveTableCell();
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to get the table cell.", e);
+        }
+    }
+
     public ITreeItem getCurrentRootItem() throws TreeManagerException {
         initFennecService();
         ITreeItem parent, current;
@@ -555,6 +601,17 @@ public class TreeManagerImpl implements ITreeManager {
         return fennecService.getAccessKeyList();
     }
 
+    public int gotoAccessKey(char key) throws TreeManagerException {
+        initFennecService();
+        try {
+            return fennecService.gotoAccessKey(key);
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "Failed to move to the access key.", e);
+        } catch (FennecException e) {
+            throw new TreeManagerException(ITreeManager.ERROR, "Failed to move to the access key.", e);
+        }
+    }
+
     public int analyze() throws TreeManagerException {
         initFennecService();
         try {
@@ -577,9 +634,15 @@ public class TreeManagerImpl implements ITreeManager {
     }
 
     public ITreeItem expandWholeTree() throws TreeManagerException {
+        return expandWholeTree(null);
+    }
+
+    public ITreeItem expandWholeTree(IProgressMonitor monitor) throws TreeManagerException {
         initFennecService();
         try {
-            return fennecService.expandWholeTree();
+            return fennecService.expandWholeTree(monitor);
+        } catch (FennecInterruptedException e) {
+            throw new TreeManagerInterruptedException(ITreeManager.UNDONE, "The expansion was cancelled.", e);
         } catch (FennecException e) {
             throw new TreeManagerException(ITreeManager.ERROR, "Failed to expand the whole tree", e);
         }
@@ -11,6 +11,7 @@
 
 package org.eclipse.actf.ai.internal.fennec;
 
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Plugin;
 import org.osgi.framework.BundleContext;
 
@@ -19,9 +20,15 @@ import org.osgi.framework.BundleContext;
  */
 public class FennecPlugin extends Plugin {
 
+	public static final String PLUGIN_ID = "org.eclipse.actf.ai.fennec";
+
+	private static final String DEBUG_STATISTICS = PLUGIN_ID + "/debug/statistics";
+
 	// The shared instance.
 	private static FennecPlugin plugin;
 
+	private static boolean statistics;
+
 	/**
 	 * The constructor.
 	 */
@@ -35,6 +42,7 @@ public class FennecPlugin extends Plugin {
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
+		statistics = isDebugging() && "true".equalsIgnoreCase(Platform.getDebugOption(DEBUG_STATISTICS));
 	}
 
 	/**
@@ -53,4 +61,11 @@ public class FennecPlugin extends Plugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns true if the statistics of the caches are collected.
+	 */
+	public static boolean isStatisticsEnabled() {
+		return statistics;
+	}
+
 }
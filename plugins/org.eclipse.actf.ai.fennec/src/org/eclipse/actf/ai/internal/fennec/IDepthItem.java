@@ -0,0 +1,22 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.internal.fennec;
+
+/**
+ * Implemented by the tree items which keep their depth, so that the tree
+ * manager does not walk the ancestors to compute the level.
+ */
+public interface IDepthItem {
+	/**
+	 * @return the number of the ancestors. The root is 0.
+	 */
+	int getDepth();
+}
@@ -26,6 +26,7 @@ import org.eclipse.actf.ai.fennec.treemanager.IMediaSyncEventListener;
 import org.eclipse.actf.ai.fennec.treemanager.ISoundControl;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.ITreeManager;
+import org.eclipse.actf.ai.fennec.treemanager.IndexedProposition;
 import org.eclipse.actf.ai.fennec.treemanager.IVideoControl;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerException;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerInterruptedException;
@@ -68,6 +69,29 @@ import org.eclipse.ui.PlatformUI;
 public abstract class NavigatorImpl implements INavigatorUI, IVoiceEventListener {
     private static boolean isDemo = ApplicationArgumentUtil.isAvailable("-demo");
 
+    // Jump propositions are shared so that the tree manager can index them.
+    private static final IProposition headingProposition = new IndexedProposition(Vocabulary.isHeading());
+
+    private static final IProposition inputableProposition = new IndexedProposition(Vocabulary.or(Vocabulary
+            .isInputable(), Vocabulary.isSelectable()));
+
+    private static final IProposition linkProposition = new IndexedProposition(Vocabulary.or(Vocabulary
+            .isClickable(), Vocabulary.isInputable(), Vocabulary.isSelectable()));
+
+    private static final IProposition objectProposition = new IndexedProposition(Vocabulary.isEmbeddedObject());
+
+    private static final IProposition listItemProposition = new IndexedProposition(Vocabulary.isListItem());
+
+    private static final IProposition mediaProposition = new IndexedProposition(Vocabulary.isMedia());
+
+    private static final IProposition[] headingLevelPropositions = new IProposition[] {
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading1())),
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading2())),
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading3())),
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading4())),
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading5())),
+            new IndexedProposition(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading6())) };
+
     // private final WebEventListener webEventListener;
 
     private IWebBrowserACTF webBrowser;
@@ -1503,45 +1527,43 @@ public abstract class NavigatorImpl implements INavigatorUI, IVoiceEventListener
     }
 
     public void nextHeader() {
-        findNext(Vocabulary.isHeading(), JumpMode.HEADING);
+        findNext(headingProposition, JumpMode.HEADING);
     }
 
     public void previousHeader() {
-        findPrevious(Vocabulary.isHeading(), JumpMode.HEADING);
+        findPrevious(headingProposition, JumpMode.HEADING);
     }
 
     public void nextInputable() {
-        findNext(Vocabulary.or(Vocabulary.isInputable(), Vocabulary.isSelectable()), JumpMode.INPUT);
+        findNext(inputableProposition, JumpMode.INPUT);
     }
 
     public void previousInputable() {
-        findPrevious(Vocabulary.or(Vocabulary.isInputable(), Vocabulary.isSelectable()), JumpMode.INPUT);
+        findPrevious(inputableProposition, JumpMode.INPUT);
     }
 
     public void nextLink() {
-        findNext(Vocabulary.or(Vocabulary.isClickable(), Vocabulary.isInputable(), Vocabulary.isSelectable()),
-                JumpMode.LINK);
+        findNext(linkProposition, JumpMode.LINK);
     }
 
     public void previousLink() {
-        findPrevious(Vocabulary.or(Vocabulary.isClickable(), Vocabulary.isInputable(), Vocabulary.isSelectable()),
-                JumpMode.LINK);
+        findPrevious(linkProposition, JumpMode.LINK);
     }
 
     public void nextObject() {
-        findNext(Vocabulary.isEmbeddedObject(), JumpMode.OBJECT);
+        findNext(objectProposition, JumpMode.OBJECT);
     }
 
     public void previousObject() {
-        findPrevious(Vocabulary.isEmbeddedObject(), JumpMode.OBJECT);
+        findPrevious(objectProposition, JumpMode.OBJECT);
     }
 
     public void nextListItem() {
-        findNext(Vocabulary.isListItem(), JumpMode.LISTITEM_TOP);
+        findNext(listItemProposition, JumpMode.LISTITEM_TOP);
     }
 
     public void previousListItem() {
-        findPrevious(Vocabulary.isListItem(), JumpMode.LISTITEM_BOTTOM);
+        findPrevious(listItemProposition, JumpMode.LISTITEM_BOTTOM);
     }
 
     public void nextBlock() {
@@ -1553,59 +1575,59 @@ public abstract class NavigatorImpl implements INavigatorUI, IVoiceEventListener
     }
 
     public void nextMedia() {
-        findNext(Vocabulary.isMedia(), JumpMode.MEDIA);
+        findNext(mediaProposition, JumpMode.MEDIA);
     }
 
     public void previousMedia() {
-        findPrevious(Vocabulary.isMedia(), JumpMode.MEDIA);
+        findPrevious(mediaProposition, JumpMode.MEDIA);
     }
 
     public void nextHeader1() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading1()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[0], JumpMode.HEADING);
     }
 
     public void nextHeader2() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading2()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[1], JumpMode.HEADING);
     }
 
     public void nextHeader3() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading3()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[2], JumpMode.HEADING);
     }
 
     public void nextHeader4() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading4()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[3], JumpMode.HEADING);
     }
 
     public void nextHeader5() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading5()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[4], JumpMode.HEADING);
     }
 
     public void nextHeader6() {
-        findNext(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading6()), JumpMode.HEADING);
+        findNext(headingLevelPropositions[5], JumpMode.HEADING);
     }
 
     public void previousHeader1() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading1()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[0], JumpMode.HEADING);
     }
 
     public void previousHeader2() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading2()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[1], JumpMode.HEADING);
     }
 
     public void previousHeader3() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading3()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[2], JumpMode.HEADING);
     }
 
     public void previousHeader4() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading4()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[3], JumpMode.HEADING);
     }
 
     public void previousHeader5() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading5()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[4], JumpMode.HEADING);
     }
 
     public void previousHeader6() {
-        findPrevious(Vocabulary.and(Vocabulary.isHeading(), Vocabulary.isHeading6()), JumpMode.HEADING);
+        findPrevious(headingLevelPropositions[5], JumpMode.HEADING);
     }
     
     public void jumpToAccessKey(final char key) {
@@ -1614,31 +1636,17 @@ public abstract class NavigatorImpl implements INavigatorUI, IVoiceEventListener
             public int run(int r) throws TreeManagerException {
                 startProgress();
                 current = getLocation();
-                return treeManager.findNext(Vocabulary.isAccessKey(key));
+                return treeManager.gotoAccessKey(key);
             }
 
             public void after(int st) throws TreeManagerException {
                 if ((st & ITreeManager.MOVED) == 0) {
-                    moveCmd(new Command() {
-                        public int run(int r) throws TreeManagerException {
-                            treeManager.gotoStartOfPage();
-                            return treeManager.findNext(Vocabulary.isAccessKey(key));
-                        }
-
-                        public void after(int st) throws TreeManagerException {
-                            if ((st & ITreeManager.MOVED) == 0){
-                                treeManager.moveToLocation(current);
-                                afterFind(st, JumpMode.ACCESSKEY, key);
-                            }
-                            else
-                                afterAccessKeyJump(st);
-                            endProgress();
-                        }
-                    });
+                    treeManager.moveToLocation(current);
+                    afterFind(st, JumpMode.ACCESSKEY, key);
                 } else {
                     afterAccessKeyJump(st);
-                    endProgress();
                 }
+                endProgress();
             }
         });
     }
@@ -1729,24 +1737,60 @@ public abstract class NavigatorImpl implements INavigatorUI, IVoiceEventListener
     // Table Navigation
     // --------------------------------------------------------------------------------
 
+    private void afterCellMove(int st, String notMoved) throws TreeManagerException {
+        if (((st & (ITreeManager.MOVED | ITreeManager.CLICKED)) == 0)
+            && (treeManager.getActiveTableCell() == null)) {
+            notMoved = "Navigator.NOT_TABLE";
+        }
+        afterMove(st, notMoved);
+    }
+
     public void cellLeft() {
-        // TODO Auto-generated method stub
+        moveCmd(new Command() {
+            public int run(int r) throws TreeManagerException {
+                return treeManager.gotoLeftCell();
+            }
 
+            public void after(int st) throws TreeManagerException {
+                afterCellMove(st, "Navigator.NO_LEFT_CELL");
+            }
+        });
     }
 
     public void cellRight() {
-        // TODO Auto-generated method stub
+        moveCmd(new Command() {
+            public int run(int r) throws TreeManagerException {
+                return treeManager.gotoRightCell();
+            }
 
+            public void after(int st) throws TreeManagerException {
+                afterCellMove(st, "Navigator.NO_RIGHT_CELL");
+            }
+        });
     }
 
     public void cellUp() {
-        // TODO Auto-generated method stub
+        moveCmd(new Command() {
+            public int run(int r) throws TreeManagerException {
+                return treeManager.gotoUpCell();
+            }
 
+            public void after(int st) throws TreeManagerException {
+                afterCellMove(st, "Navigator.NO_UP_CELL");
+            }
+        });
     }
 
     public void cellDown() {
-        // TODO Auto-generated method stub
+        moveCmd(new Command() {
+            public int run(int r) throws TreeManagerException {
+                return treeManager.gotoDownCell();
+            }
 
+            public void after(int st) throws TreeManagerException {
+                afterCellMove(st, "Navigator.NO_DOWN_CELL");
+            }
+        });
     }
 
     // --------------------------------------------------------------------------------
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.actf.ai.navigator.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.actf.ai.fennec.treemanager.ITreeItem;
 import org.eclipse.actf.ai.fennec.treemanager.TreeManagerException;
 import org.eclipse.actf.ai.internal.navigator.NavigatorPlugin;
@@ -82,7 +85,22 @@ public class NavigatorImplEx extends NavigatorImpl {
             ITreeItem item = getTreeManager().getCurrentRootItem();
             setMode(IManipulator.KEYHOOK_DISABLED_MODE);
             item.setFocus();
-            int k = guessAltTextIter(item);
+            List<ITreeItem> items = new ArrayList<ITreeItem>();
+            List<String> texts = new ArrayList<String>();
+            guessAltTextIter(item, items, texts);
+            int k = 0;
+            if (items.size() > 0) {
+                IMetaDataModifier modifier = new MetaDataModifier();
+                modifier.setGenerator(new AltTextEditor());
+                modifier.setSite(observer.getTargetFilter());
+                modifier.setPageTitle(PlatformUIUtil.getActiveEditor().getTitle());
+                IUserInfoGenerator.Result[] results = modifier.commit(items.toArray(new ITreeItem[items.size()]),
+                        texts.toArray(new String[texts.size()]), false);
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] != IUserInfoGenerator.Result.NOTHING)
+                        ++k;
+                }
+            }
             if (k > 0) {
                 String mes = getMessageFormatter().mes("Navigator.ALT_TEXT_WERE_GUESSED", k);
                 speak(mes, true);
@@ -103,43 +121,32 @@ public class NavigatorImplEx extends NavigatorImpl {
         }
     }
 
-    private int guessAltTextIter(ITreeItem item) throws XMLStoreException {
-        int k = 0;
+    // The guessed texts are committed together by the caller.
+    private void guessAltTextIter(ITreeItem item, List<ITreeItem> items, List<String> texts) {
         ITreeItem[] v = item.getChildItems();
 
         for (int i = 0; i < v.length; i++) {
             ITreeItem c = v[i];
-            k += guessAltTextIter(c);
+            guessAltTextIter(c, items, texts);
         }
 
         if (!Vocabulary.isAlterable().eval(item)) {
-            return k;
+            return;
         }
 
         if (isGoodAltText(item.getUIString())) {
-            return k;
+            return;
         }
 
         AltTextGuesser guesser = new AltTextGuesser(webBrowser, item);
         String newText = guesser.guessByContext();
 
         if (newText == null || newText.length() == 0) {
-            return k;
+            return;
         }
 
-        IMetaDataModifier modifier = new MetaDataModifier();
-        modifier.setGenerator(new AltTextEditor());
-        modifier.setSite(observer.getTargetFilter());
-        modifier.setPageTitle(PlatformUIUtil.getActiveEditor().getTitle());
-        modifier.setItem(item);
-        
-        modifier.setText(getMessageFormatter().mes("Navigator.ANNOTATION_LINK_TO", newText));
-        IUserInfoGenerator.Result result = modifier.commit(false);
-
-        if (result != IUserInfoGenerator.Result.NOTHING)
-            ++k;
-
-        return k;
+        items.add(item);
+        texts.add(getMessageFormatter().mes("Navigator.ANNOTATION_LINK_TO", newText));
     }
 
     private boolean isGoodAltText(String s) {
@@ -24,6 +24,8 @@ public interface IMetaDataModifier {
 
     Result commit(boolean save) throws XMLStoreException;
 
+    Result[] commit(ITreeItem[] items, String[] texts, boolean save) throws XMLStoreException;
+
     String getSite();
 
     void setSite(String targetSite);
@@ -18,6 +18,7 @@ import org.eclipse.actf.ai.navigator.userinfo.IMetaDataModifier;
 import org.eclipse.actf.ai.navigator.userinfo.IUserInfoConstants;
 import org.eclipse.actf.ai.navigator.userinfo.IUserInfoGenerator;
 import org.eclipse.actf.ai.navigator.userinfo.IUserInfoGenerator.Result;
+import org.eclipse.actf.ai.query.QueryService;
 import org.eclipse.actf.ai.xmlstore.IXMLEditableInfo;
 import org.eclipse.actf.ai.xmlstore.IXMLInfo;
 import org.eclipse.actf.ai.xmlstore.IXMLSelector;
@@ -82,6 +83,56 @@ public class MetaDataModifier implements IUserInfoConstants, IMetaDataModifier {
             info.save();
         return result;
     }
+
+    /* (non-Javadoc)
+     * @see org.eclipse.actf.ai.navigator.userinfo.IMetaDataModifier#commit(org.eclipse.actf.ai.fennec.treemanager.ITreeItem[], java.lang.String[], boolean)
+     */
+    public Result[] commit(ITreeItem[] items, String[] texts, boolean save) throws XMLStoreException {
+        IXMLEditableInfo info = getUserInfo();
+        info.setPageTitle(pageTitle);
+        Result[] results = new Result[items.length];
+        if (generator == null) {
+            for (int i = 0; i < items.length; i++)
+                results[i] = Result.NOTHING;
+        } else {
+            Document infoDocument = info.getRootNode().getOwnerDocument();
+            Node parent = infoDocument.getElementsByTagNameNS(DEFAULT_NAMESPACE, "attach").item(0);
+            // The queries of all the items are serialized in one batch.
+            Node[] targets = new Node[items.length];
+            int count = 0;
+            for (int i = 0; i < items.length; i++) {
+                Object o = items[i].getBaseNode();
+                if (o instanceof Node)
+                    targets[count++] = (Node) o;
+            }
+            Node[] trimmed = new Node[count];
+            System.arraycopy(targets, 0, trimmed, 0, count);
+            Node[] nodes = QueryService.serializeQueries(trimmed, parent);
+            count = 0;
+            for (int i = 0; i < items.length; i++) {
+                if (!(items[i].getBaseNode() instanceof Node)) {
+                    results[i] = Result.ERROR;
+                    continue;
+                }
+                Node node = nodes[count++];
+                if (node == null) {
+                    // The position of the base node is not known.
+                    results[i] = Result.ERROR;
+                    continue;
+                }
+                results[i] = generator.addUserInfo(node, texts[i]);
+            }
+            // Several items may share a node, so the empty nodes are removed
+            // at the end.
+            for (int i = 0; i < nodes.length; i++) {
+                if ((nodes[i] != null) && !nodes[i].hasChildNodes() && (nodes[i].getParentNode() == parent))
+                    parent.removeChild(nodes[i]);
+            }
+        }
+        if (save)
+            info.save();
+        return results;
+    }
     
     private IXMLEditableInfo getUserInfo() throws XMLStoreException {
         IXMLStoreService service = XMLStoreServiceUtil.getXMLStoreService();
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.actf.util.xpath.XPathService;
+import org.eclipse.actf.util.xpath.XPathServiceFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+/**
+ * Compares the direct walk of {@link SimpleLocationPath} with the XPath
+ * engine on a synthetic document. Run it as a Java application. It is kept
+ * out of the test source folder, so the test runs and the build skip it.
+ */
+class SimpleLocationPathBenchmark {
+    private static final int FAN_OUT = 8;
+
+    private static final int DEPTH = 4;
+
+    private static final int ITERATIONS = 20;
+
+    private static void build(Document doc, Element parent, int depth) {
+        if (depth == 0)
+            return;
+        for (int i = 0; i < FAN_OUT; i++) {
+            Element e = doc.createElement((i % 2 == 0) ? "DIV" : "SPAN");
+            if ((depth == DEPTH - 1) && (i == 1)) {
+                e.setAttribute("id", "target");
+                e.setIdAttribute("id", true);
+            }
+            parent.appendChild(e);
+            build(doc, e, depth - 1);
+        }
+    }
+
+    private static void addPaths(Node n, String path, List<String> paths) {
+        paths.add(path);
+        int divs = 0;
+        int spans = 0;
+        for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+            String name = c.getNodeName();
+            int k = name.equals("DIV") ? ++divs : ++spans;
+            // Every third path is enough to cover the document.
+            if ((k % 3) == 1)
+                addPaths(c, path + "/" + name + "[" + k + "]", paths);
+        }
+    }
+
+    private static List<Node> collect(Iterator<Node> it) {
+        List<Node> result = new ArrayList<Node>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element html = doc.createElement("HTML");
+        doc.appendChild(html);
+        Element body = doc.createElement("BODY");
+        html.appendChild(body);
+        build(doc, body, DEPTH);
+        Node target = doc.getElementById("target");
+
+        List<String> pathList = new ArrayList<String>();
+        addPaths(body, "/HTML[1]/BODY[1]", pathList);
+        pathList.add("/HTML/BODY/DIV/SPAN");
+        pathList.add("id(\"target\")/DIV[2]/SPAN[1]");
+        String[] paths = pathList.toArray(new String[pathList.size()]);
+
+        XPathService xpathService = XPathServiceFactory.newService();
+        Object[] compiled = new Object[paths.length];
+        SimpleLocationPath[] simple = new SimpleLocationPath[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            compiled[i] = xpathService.compile(paths[i]);
+            simple[i] = SimpleLocationPath.parse(paths[i]);
+        }
+
+        // Both paths must return the same nodes.
+        for (int i = 0; i < paths.length; i++) {
+            NodeList nl = xpathService.evalForNodeList(compiled[i], target);
+            List<Node> result = collect(simple[i].iterator(target));
+            boolean same = (nl.getLength() == result.size());
+            for (int j = 0; same && (j < result.size()); j++) {
+                same = (nl.item(j) == result.get(j));
+            }
+            if (!same)
+                throw new IllegalStateException("Different result for " + paths[i]);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int count = 0;
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (int i = 0; i < paths.length; i++) {
+                    count += xpathService.evalForNodeList(compiled[i], body).getLength();
+                }
+            }
+            long xpathNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (int i = 0; i < paths.length; i++) {
+                    for (Iterator<Node> nodes = simple[i].iterator(body); nodes.hasNext(); nodes.next()) {
+                        count--;
+                    }
+                }
+            }
+            long walkNanos = System.nanoTime() - start;
+            if (count != 0)
+                throw new IllegalStateException("Different number of nodes.");
+
+            int queries = ITERATIONS * paths.length;
+            System.out.println("round " + round + ": " + paths.length + " paths, xpath=" + (xpathNanos / queries)
+                    + "ns/query, walk=" + (walkNanos / queries) + "ns/query");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+
+public class IdIndexTest extends TestCase {
+    private Document doc;
+
+    private Element body;
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element html = doc.createElement("HTML");
+        doc.appendChild(html);
+        body = doc.createElement("BODY");
+        html.appendChild(body);
+    }
+
+    private Element addElement(Element parent, String id) {
+        Element e = doc.createElement("DIV");
+        e.setAttribute("id", id);
+        e.setIdAttribute("id", true);
+        parent.appendChild(e);
+        return e;
+    }
+
+    public void testDuplicatedIds() {
+        Element a = addElement(body, "a");
+        Element a2 = addElement(addElement(body, "b"), "a");
+        List<Node> nodes = IdIndex.get(doc, "a");
+        assertEquals(2, nodes.size());
+        assertSame(a, nodes.get(0));
+        assertSame(a2, nodes.get(1));
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        assertEquals(0, IdIndex.get(doc, "none").size());
+    }
+
+    public void testChangedId() {
+        Element a = addElement(body, "a");
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        a.setAttribute("id", "c");
+        assertNull(IdIndex.getFirstInDocument("a", doc));
+        assertSame(a, IdIndex.getFirstInDocument("c", doc));
+    }
+
+    public void testRemovedElement() {
+        Element a = addElement(body, "a");
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        body.removeChild(a);
+        // The removal is found in the next generation.
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        IdIndex.clear();
+        assertNull(IdIndex.getFirstInDocument("a", doc));
+    }
+
+    public void testAddedElement() {
+        addElement(body, "a");
+        assertNull(IdIndex.getFirstInDocument("b", doc));
+        Element b = addElement(body, "b");
+        // The addition is found in the next generation.
+        assertNull(IdIndex.getFirstInDocument("b", doc));
+        IdIndex.clear();
+        assertSame(b, IdIndex.getFirstInDocument("b", doc));
+    }
+
+    public void testNewGeneration() {
+        Element a = addElement(body, "a");
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        // The order of the elements is not checked by the lookups.
+        Element a2 = doc.createElement("DIV");
+        a2.setAttribute("id", "a");
+        body.insertBefore(a2, a);
+        assertSame(a, IdIndex.getFirstInDocument("a", doc));
+        IdIndex.clear();
+        assertSame(a2, IdIndex.getFirstInDocument("a", doc));
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+public class LazyNodeListTest extends TestCase {
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    protected void setUp() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(doc.createElement("E" + i));
+        }
+    }
+
+    // Counts the nodes read from the list.
+    private class CountingIterator implements Iterator<Node> {
+        private final Iterator<Node> it = nodes.iterator();
+
+        int count;
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public Node next() {
+            count++;
+            return it.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class CountingNodeList implements NodeList {
+        int lengthCalls;
+
+        public Node item(int index) {
+            return ((index >= 0) && (index < nodes.size())) ? nodes.get(index) : null;
+        }
+
+        public int getLength() {
+            lengthCalls++;
+            return nodes.size();
+        }
+    }
+
+    public void testItemReadsOnlyPrefix() {
+        CountingIterator source = new CountingIterator();
+        LazyNodeList nl = new LazyNodeList(source);
+        assertSame(nodes.get(0), nl.item(0));
+        assertEquals(1, source.count);
+        assertSame(nodes.get(3), nl.item(3));
+        assertEquals(4, source.count);
+        assertSame(nodes.get(1), nl.item(1));
+        assertEquals(4, source.count);
+        assertEquals(nodes.size(), nl.getLength());
+        assertNull(nl.item(nodes.size()));
+        assertNull(nl.item(-1));
+    }
+
+    public void testEmpty() {
+        LazyNodeList nl = new LazyNodeList(null);
+        assertNull(nl.item(0));
+        assertEquals(0, nl.getLength());
+    }
+
+    public void testIteratorReadsLengthOnce() {
+        CountingNodeList nl = new CountingNodeList();
+        Iterator<Node> it = LazyNodeList.iterator(nl);
+        int i = 0;
+        while (it.hasNext()) {
+            assertSame(nodes.get(i++), it.next());
+        }
+        assertEquals(nodes.size(), i);
+        assertEquals(1, nl.lengthCalls);
+    }
+
+    public void testExpanderSkipsEmptyParts() {
+        List<Integer> source = Arrays.asList(new Integer[] { Integer.valueOf(0), Integer.valueOf(1),
+                Integer.valueOf(2), Integer.valueOf(3) });
+        Iterator<Node> it = new LazyNodeList.Expander<Integer>(source.iterator()) {
+            Iterator<Node> expand(Integer i) {
+                switch (i.intValue()) {
+                case 0:
+                    return null;
+                case 1:
+                    return nodes.subList(0, 2).iterator();
+                case 2:
+                    return new ArrayList<Node>().iterator();
+                default:
+                    return nodes.subList(5, 6).iterator();
+                }
+            }
+        };
+        LazyNodeList nl = new LazyNodeList(it);
+        assertEquals(3, nl.getLength());
+        assertSame(nodes.get(0), nl.item(0));
+        assertSame(nodes.get(1), nl.item(1));
+        assertSame(nodes.get(5), nl.item(2));
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.eclipse.actf.ai.query.IQuery;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+public class QueryMatcherImplTest extends TestCase {
+    private static final String XML_QUERY_NS = "http://www.ibm.com/xmlns/prod/aiBrowser/fennec/xml-query";
+
+    private Document doc;
+
+    private Element body;
+
+    private QueryMatcherImpl<String> matcher;
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element html = doc.createElement("HTML");
+        doc.appendChild(html);
+        body = doc.createElement("BODY");
+        html.appendChild(body);
+        addElement(body, "DIV", null);
+        Element div = addElement(body, "DIV", "a");
+        addElement(div, "SPAN", null);
+        addElement(div, "SPAN", null);
+        addElement(body, "P", null);
+        addElement(body, "DIV", null);
+        matcher = new QueryMatcherImpl<String>();
+    }
+
+    private Element addElement(Element parent, String name, String id) {
+        Element e = doc.createElement(name);
+        if (id != null) {
+            e.setAttribute("id", id);
+            e.setIdAttribute("id", true);
+        }
+        parent.appendChild(e);
+        return e;
+    }
+
+    private IQuery parseIdrefs(String idrefs) {
+        Element e = doc.createElementNS("urn:test", "query");
+        e.setAttributeNS(XML_QUERY_NS, "loc:idrefs", idrefs);
+        return QueryImpl.parse(e, null);
+    }
+
+    // The matcher must find the same nodes as the query itself.
+    private void assertSameResult(IQuery query, List<Node> nodes) {
+        NodeList nl = query.query(doc);
+        int len = (nl == null) ? 0 : nl.getLength();
+        assertEquals(len, nodes.size());
+        for (int i = 0; i < len; i++) {
+            assertSame(nl.item(i), nodes.get(i));
+        }
+    }
+
+    public void testPaths() {
+        String[] paths = { "/HTML/BODY/DIV[2]", "/HTML/BODY/DIV", "/HTML/BODY/P", "/HTML/BODY/DIV[2]/SPAN[2]",
+                "/HTML/BODY/UL" };
+        IQuery[] queries = new IQuery[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            queries[i] = QueryImpl.parseXPath(paths[i]);
+            assertTrue(matcher.add(queries[i], paths[i]));
+        }
+        Map<String, List<Node>> result = matcher.match(doc);
+        assertEquals(paths.length, result.size());
+        for (int i = 0; i < paths.length; i++) {
+            assertSameResult(queries[i], result.get(paths[i]));
+        }
+        assertEquals(3, result.get("/HTML/BODY/DIV").size());
+        assertEquals(0, result.get("/HTML/BODY/UL").size());
+    }
+
+    public void testIds() {
+        IQuery byPath = QueryImpl.parseXPath("id('a')/SPAN[1]");
+        IQuery byIdrefs = parseIdrefs("a none");
+        assertTrue(matcher.add(byPath, "path"));
+        assertTrue(matcher.add(byIdrefs, "idrefs"));
+        Map<String, List<Node>> result = matcher.match(body);
+        assertEquals(1, result.get("path").size());
+        assertSame(doc.getElementById("a").getFirstChild(), result.get("path").get(0));
+        assertEquals(1, result.get("idrefs").size());
+        assertSame(doc.getElementById("a"), result.get("idrefs").get(0));
+    }
+
+    public void testNotCombinable() {
+        assertFalse(matcher.add(QueryImpl.parseXPath("//DIV"), "descendant"));
+        assertFalse(matcher.add(QueryImpl.parseXPath("/HTML/BODY/DIV[@id='a']"), "predicate"));
+        assertTrue(matcher.match(doc).isEmpty());
+    }
+
+    public void testSameKey() {
+        String key = "div";
+        assertTrue(matcher.add(QueryImpl.parseXPath("/HTML/BODY/DIV[1]"), key));
+        assertTrue(matcher.add(QueryImpl.parseXPath("/HTML/BODY/P"), key));
+        Map<String, List<Node>> result = matcher.match(doc);
+        assertEquals(1, result.size());
+        assertEquals("DIV", result.get(key).get(0).getNodeName());
+    }
+}
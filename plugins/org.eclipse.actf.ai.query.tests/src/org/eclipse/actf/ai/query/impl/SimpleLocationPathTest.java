@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+public class SimpleLocationPathTest extends TestCase {
+    private static final int FAN_OUT = 4;
+
+    private static final int DEPTH = 4;
+
+    private Document doc;
+
+    private Element body;
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element html = doc.createElement("HTML");
+        doc.appendChild(html);
+        body = doc.createElement("BODY");
+        html.appendChild(body);
+        build(body, DEPTH);
+    }
+
+    private void build(Element parent, int depth) {
+        if (depth == 0)
+            return;
+        for (int i = 0; i < FAN_OUT; i++) {
+            Element e = doc.createElement((i % 2 == 0) ? "DIV" : "SPAN");
+            if ((depth == DEPTH - 1) && (i == 1) && (doc.getElementById("target") == null)) {
+                e.setAttribute("id", "target");
+                e.setIdAttribute("id", true);
+            }
+            parent.appendChild(e);
+            parent.appendChild(doc.createTextNode("text"));
+            build(e, depth - 1);
+        }
+    }
+
+    private static void addPaths(Node n, String path, List<String> paths) {
+        paths.add(path);
+        int divs = 0;
+        int spans = 0;
+        for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+            if (c.getNodeType() != Node.ELEMENT_NODE)
+                continue;
+            String name = c.getNodeName();
+            int k = name.equals("DIV") ? ++divs : ++spans;
+            addPaths(c, path + "/" + name + "[" + k + "]", paths);
+        }
+    }
+
+    private static List<Node> evaluate(SimpleLocationPath path, Node base) {
+        List<Node> result = new ArrayList<Node>();
+        for (Iterator<Node> it = path.iterator(base); it.hasNext();) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    private void assertSameResult(String path) throws Exception {
+        SimpleLocationPath simple = SimpleLocationPath.parse(path);
+        assertNotNull(path, simple);
+        NodeList expected = (NodeList) XPathFactory.newInstance().newXPath().evaluate(path, body,
+                XPathConstants.NODESET);
+        List<Node> result = evaluate(simple, body);
+        assertEquals(path, expected.getLength(), result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertSame(path, expected.item(i), result.get(i));
+        }
+    }
+
+    public void testParse() {
+        SimpleLocationPath path = SimpleLocationPath.parse("id(\"main\")/UL[1]/LI");
+        assertEquals("main", path.getId());
+        assertEquals(2, path.getLength());
+        assertEquals("UL", path.getName(0));
+        assertEquals(1, path.getPosition(0));
+        assertEquals(SimpleLocationPath.ANY, path.getPosition(1));
+
+        assertNull(SimpleLocationPath.parse("//DIV"));
+        assertNull(SimpleLocationPath.parse("DIV/SPAN"));
+        assertNull(SimpleLocationPath.parse("/HTML/BODY[last()]"));
+        assertNull(SimpleLocationPath.parse("/HTML[0]"));
+        assertNull(SimpleLocationPath.parse("/HTML/*"));
+        assertNull(SimpleLocationPath.parse("id('a b')/DIV"));
+        assertNull(SimpleLocationPath.parse("/"));
+    }
+
+    public void testSameResultAsXPath() throws Exception {
+        List<String> paths = new ArrayList<String>();
+        addPaths(body, "/HTML[1]/BODY[1]", paths);
+        paths.add("/HTML/BODY/DIV/SPAN");
+        paths.add("/HTML/BODY/SPAN[2]/DIV");
+        paths.add("/HTML/BODY/DIV[9]");
+        paths.add("/HTML/HEAD");
+        paths.add("id(\"target\")");
+        paths.add("id(\"target\")/DIV[2]/SPAN[1]");
+        paths.add("id('target')/DIV");
+        paths.add("id(\"missing\")/DIV");
+        for (String path : paths) {
+            assertSameResult(path);
+        }
+    }
+
+    public void testIteratorIsLazy() {
+        Iterator<Node> it = SimpleLocationPath.parse("/HTML/BODY/DIV").iterator(body);
+        assertTrue(it.hasNext());
+        Node first = it.next();
+        // The nodes added after the start of the walk are found.
+        Element last = doc.createElement("DIV");
+        body.appendChild(last);
+        Node n = first;
+        while (it.hasNext()) {
+            n = it.next();
+        }
+        assertSame(last, n);
+        try {
+            it.next();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+    }
+
+    public void testDetachedBase() {
+        Element e = doc.createElement("DIV");
+        assertEquals(1, evaluate(SimpleLocationPath.parse("/HTML/BODY"), e).size());
+    }
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+
+public class XPathSerializerTest extends TestCase {
+    private static final String[] NAMES = { "DIV", "SPAN", "P", "A" };
+
+    private Document doc;
+
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    protected void setUp() throws Exception {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element html = doc.createElement("HTML");
+        doc.appendChild(html);
+        Element body = doc.createElement("BODY");
+        html.appendChild(body);
+        nodes.add(html);
+        nodes.add(body);
+        build(body, 5, new Random(7));
+    }
+
+    private void build(Element parent, int depth, Random random) {
+        if (depth == 0)
+            return;
+        int children = random.nextInt(6);
+        for (int i = 0; i < children; i++) {
+            Node n;
+            if (random.nextInt(5) == 0) {
+                n = doc.createTextNode("text");
+            } else {
+                Element e = doc.createElement(NAMES[random.nextInt(NAMES.length)]);
+                int r = random.nextInt(20);
+                if (r == 0) {
+                    e.setAttribute("id", "id" + nodes.size());
+                    e.setIdAttribute("id", true);
+                } else if (r == 1) {
+                    // An id with ':' is not used for the path.
+                    e.setAttribute("id", "x:" + nodes.size());
+                    e.setIdAttribute("id", true);
+                }
+                build(e, depth - 1, random);
+                n = e;
+            }
+            parent.appendChild(n);
+            nodes.add(n);
+        }
+    }
+
+    // The serialization by walking up to the root for each node.
+    private static String getXPath(Node node) {
+        StringBuffer ret = new StringBuffer();
+        for (Node n = node; n != null; n = n.getParentNode()) {
+            if (n instanceof Document)
+                break;
+            String id = XMLQueryImpl.checkID(n);
+            if (id != null) {
+                ret.insert(0, "id(\"" + id + "\")");
+                break;
+            }
+            String name = n.getNodeName();
+            if (name.startsWith("#"))
+                continue;
+            int k = 1;
+            for (Node c = n.getParentNode().getFirstChild(); c != n; c = c.getNextSibling()) {
+                if (c.getNodeName().equals(name))
+                    ++k;
+            }
+            ret.insert(0, "/" + name + "[" + k + "]");
+        }
+        return ret.toString();
+    }
+
+    public void testSameAsWalkingUp() {
+        XPathSerializer serializer = new XPathSerializer();
+        for (Node n : nodes) {
+            assertEquals(getXPath(n), serializer.getXPath(n));
+        }
+        // The memoized paths are still correct.
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node n = nodes.get(i);
+            assertEquals(getXPath(n), serializer.getXPath(n));
+        }
+    }
+
+    public void testPathFindsNode() {
+        XPathSerializer serializer = new XPathSerializer();
+        for (Node n : nodes) {
+            if (n.getNodeType() != Node.ELEMENT_NODE)
+                continue;
+            SimpleLocationPath path = SimpleLocationPath.parse(serializer.getXPath(n));
+            assertNotNull(path);
+            Iterator<Node> it = path.iterator(doc);
+            assertSame(n, it.next());
+            assertFalse(it.hasNext());
+        }
+    }
+
+    public void testDetachedNode() {
+        XPathSerializer serializer = new XPathSerializer();
+        assertNull(serializer.getXPath(doc.createElement("DIV")));
+    }
+
+    // An element whose parent does not have it among its children.
+    private Element newLostElement(final Element parent) {
+        final Element e = doc.createElement("DIV");
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("getParentNode".equals(method.getName()))
+                    return parent;
+                return method.invoke(e, args);
+            }
+        };
+        return (Element) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Element.class }, handler);
+    }
+
+    public void testUnknownPosition() {
+        XPathSerializer serializer = new XPathSerializer();
+        assertNull(serializer.getXPath(newLostElement((Element) nodes.get(1))));
+    }
+
+    private Element newUsrParent() throws Exception {
+        Document usrDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element usrParent = usrDoc.createElement("attach");
+        usrDoc.appendChild(usrParent);
+        return usrParent;
+    }
+
+    public void testNoQueryForDetachedNode() throws Exception {
+        Element usrParent = newUsrParent();
+        Node detached = doc.createElement("DIV");
+        assertNull(QueryImpl.serializeQuery(detached, usrParent));
+        Node lost = newLostElement((Element) nodes.get(1));
+        assertNull(QueryImpl.serializeQuery(lost, usrParent));
+        assertNull(usrParent.getFirstChild());
+
+        Node[] batch = QueryImpl.serializeQueries(new Node[] { detached, nodes.get(1), lost }, usrParent);
+        assertNull(batch[0]);
+        assertNotNull(batch[1]);
+        assertNull(batch[2]);
+        assertSame(batch[1], usrParent.getFirstChild());
+        assertNull(batch[1].getNextSibling());
+    }
+
+    public void testBatchSameAsSingle() throws Exception {
+        Element usrParent = newUsrParent();
+        Node[] targets = new Node[nodes.size() * 2];
+        for (int i = 0; i < nodes.size(); i++) {
+            targets[i] = nodes.get(i);
+            targets[targets.length - 1 - i] = nodes.get(i);
+        }
+        Node[] batch = QueryImpl.serializeQueries(targets, usrParent);
+        for (int i = 0; i < targets.length; i++) {
+            assertSame(QueryImpl.serializeQuery(targets[i], usrParent), batch[i]);
+        }
+        // The same query is created only once.
+        for (int i = 0; i < nodes.size(); i++) {
+            assertSame(batch[i], batch[targets.length - 1 - i]);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query;
+
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Node;
+
+/**
+ * IQueryMatcher binds many queries to their target nodes together. The
+ * queries consisting of ids and simple location paths are combined and
+ * evaluated by a single walk of the document.
+ * 
+ * @param <T>
+ *            the type of the keys of the queries.
+ */
+public interface IQueryMatcher<T> {
+	/**
+	 * @param query
+	 *            the query to be combined.
+	 * @param key
+	 *            the key of the query.
+	 * @return false if the query cannot be combined. Such a query must be
+	 *         evaluated by {@link IQuery#query(Node)}.
+	 */
+	boolean add(IQuery query, T key);
+
+	/**
+	 * @param base
+	 *            a node in the document to be matched.
+	 * @return the nodes gathered for each combined query, in the same order
+	 *         as {@link IQuery#query(Node)} returns them. Every combined key
+	 *         has an entry.
+	 */
+	Map<T, List<Node>> match(Node base);
+}
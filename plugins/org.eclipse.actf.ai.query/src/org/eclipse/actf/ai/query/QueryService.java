@@ -12,6 +12,7 @@
 package org.eclipse.actf.ai.query;
 
 import org.eclipse.actf.ai.query.impl.QueryImpl;
+import org.eclipse.actf.ai.query.impl.QueryMatcherImpl;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
@@ -39,14 +40,49 @@ public class QueryService {
 		return QueryImpl.parseXPath(xpath);
 	}
 
+	/**
+	 * @return new instance of matcher which evaluates many queries together.
+	 */
+	public static <T> IQueryMatcher<T> createMatcher() {
+		return new QueryMatcherImpl<T>();
+	}
+
+	/**
+	 * The indexes of the element ids built for the documents are rebuilt at
+	 * their next lookups. The lookups check their results against the
+	 * documents, but it should be called when the documents may have been
+	 * changed as a whole, e.g. after a page is loaded.
+	 */
+	public static void clearIndexes() {
+		QueryImpl.clearIndexes();
+	}
+
 	/**
 	 * @param domTarget
 	 *            the target DOM node to be queried by the created query.
 	 * @param usrParent
 	 *            the parent node of the created query.
-	 * @return new instance of query which returns the domTarget.
+	 * @return new instance of query which returns the domTarget, or null if
+	 *         the position of the domTarget cannot be determined, e.g. it is
+	 *         detached from the document.
 	 */
 	public static Node serializeQuery(Node domTarget, Node usrParent) {
 		return QueryImpl.serializeQuery(domTarget, usrParent);
 	}
+
+	/**
+	 * The queries of the targets are serialized together. The paths of the
+	 * common ancestors are computed only once, so it is faster than calling
+	 * {@link #serializeQuery(Node, Node)} for each target.
+	 * 
+	 * @param domTargets
+	 *            the target DOM nodes to be queried by the created queries.
+	 * @param usrParent
+	 *            the parent node of the created queries.
+	 * @return the query nodes for the targets in the same order. The element
+	 *         is null for a target whose position cannot be determined.
+	 */
+	public static Node[] serializeQueries(Node[] domTargets, Node usrParent) {
+		return QueryImpl.serializeQueries(domTargets, usrParent);
+	}
 }
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+
+/**
+ * The elements of a document keyed by their id attributes. The documents in
+ * the frames are reached through the children of the frame elements, so the
+ * index covers all frames. An index is built by one walk of the document and
+ * it belongs to the generation in which it was built; {@link #clear()} starts
+ * a new generation, and the owner of the document calls it when the
+ * document may have changed. Within a generation only the id attribute of a
+ * hit is checked, which rebuilds the index if the id has been changed; the
+ * removed and the added elements are found in the next generation.
+ * Only the indexes of the recently queried documents are kept, since the
+ * indexed nodes refer to their documents.
+ */
+class IdIndex {
+    private static final int MAX_INDEXES = 4;
+
+    private static final LinkedHashMap<Document, IdIndex> indexes = new LinkedHashMap<Document, IdIndex>(8, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<Document, IdIndex> eldest) {
+            return size() > MAX_INDEXES;
+        }
+    };
+
+    private static int currentGeneration;
+
+    private final int generation;
+
+    private final HashMap<String, List<Node>> map = new HashMap<String, List<Node>>();
+
+    private IdIndex(Document doc) {
+        this.generation = currentGeneration;
+        Node root = doc.getDocumentElement();
+        Node n = root;
+        while (n != null) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                String id = ((Element) n).getAttribute("id");
+                if ((id != null) && (id.length() > 0)) {
+                    List<Node> nodes = map.get(id);
+                    if (nodes == null) {
+                        nodes = new ArrayList<Node>(1);
+                        map.put(id, nodes);
+                    }
+                    nodes.add(n);
+                }
+            }
+            Node next = n.getFirstChild();
+            if (next == null) {
+                for (; n != null; n = n.getParentNode()) {
+                    if (n == root) {
+                        n = null;
+                        break;
+                    }
+                    next = n.getNextSibling();
+                    if (next != null)
+                        break;
+                }
+                if (n == null)
+                    break;
+            }
+            n = next;
+        }
+    }
+
+    private static synchronized IdIndex getIndex(Document doc, boolean rebuild) {
+        IdIndex index = indexes.get(doc);
+        if (rebuild || (index == null) || (index.generation != currentGeneration)) {
+            index = new IdIndex(doc);
+            indexes.put(doc, index);
+        }
+        return index;
+    }
+
+    /**
+     * Start a new generation. The indexes are rebuilt at their next lookups.
+     */
+    static synchronized void clear() {
+        currentGeneration++;
+    }
+
+    private static boolean hasId(List<Node> nodes, String id) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!id.equals(((Element) nodes.get(i)).getAttribute("id")))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the elements with the id in document order. The returned list
+     *         must not be modified.
+     */
+    static List<Node> get(Document doc, String id) {
+        List<Node> nodes = getIndex(doc, false).map.get(id);
+        if ((nodes != null) && !hasId(nodes, id)) {
+            // The id has been changed.
+            nodes = getIndex(doc, true).map.get(id);
+        }
+        if (nodes == null)
+            return new ArrayList<Node>(0);
+        return nodes;
+    }
+
+    /**
+     * @return the first element with the id owned by <i>doc</i>, or null.
+     */
+    static Node getFirstInDocument(String id, Document doc) {
+        List<Node> nodes = get(doc, id);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node n = nodes.get(i);
+            if (doc.isSameNode(n.getOwnerDocument()))
+                return n;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+
+/**
+ * NodeList pulling the nodes from an iterator on demand. item(i) evaluates
+ * the query only up to the i-th node, and getLength() evaluates all of it.
+ */
+class LazyNodeList implements NodeList {
+    /**
+     * Iterator concatenating the nodes expanded from each element of the
+     * source. It is used to chain the stages of a query without copying the
+     * intermediate results.
+     */
+    abstract static class Expander<S> implements Iterator<Node> {
+        private final Iterator<S> source;
+
+        private Iterator<Node> current;
+
+        Expander(Iterator<S> source) {
+            this.source = source;
+        }
+
+        /**
+         * @return the nodes for the element of the source, or null.
+         */
+        abstract Iterator<Node> expand(S s);
+
+        public boolean hasNext() {
+            while ((current == null) || !current.hasNext()) {
+                if (!source.hasNext())
+                    return false;
+                current = expand(source.next());
+            }
+            return true;
+        }
+
+        public Node next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private Iterator<Node> source;
+
+    private final ArrayList<Node> buffer = new ArrayList<Node>();
+
+    /**
+     * @param source
+     *            the iterator of the nodes. If it is null, the list is empty.
+     */
+    LazyNodeList(Iterator<Node> source) {
+        this.source = source;
+    }
+
+    private void fill(int size) {
+        if (source == null)
+            return;
+        while (buffer.size() < size) {
+            if (!source.hasNext()) {
+                source = null;
+                return;
+            }
+            buffer.add(source.next());
+        }
+    }
+
+    public Node item(int index) {
+        if (index < 0)
+            return null;
+        fill(index + 1);
+        if (index >= buffer.size())
+            return null;
+        return buffer.get(index);
+    }
+
+    public int getLength() {
+        fill(Integer.MAX_VALUE);
+        return buffer.size();
+    }
+
+    /**
+     * @return the iterator reading the NodeList by index without copying.
+     *         The length of the NodeList is read only once.
+     */
+    static Iterator<Node> iterator(final NodeList nl) {
+        return new Iterator<Node>() {
+            private int index;
+
+            private int length = -1;
+
+            public boolean hasNext() {
+                if (length < 0)
+                    length = nl.getLength();
+                return index < length;
+            }
+
+            public Node next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return nl.item(index++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
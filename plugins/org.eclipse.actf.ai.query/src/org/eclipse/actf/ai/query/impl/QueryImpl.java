@@ -12,6 +12,7 @@
 package org.eclipse.actf.ai.query.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -82,70 +83,70 @@ public class QueryImpl implements IQuery {
         return new QueryImpl(xmlQuery, null, null);
     }
 
-    private static class NodeListImpl implements NodeList {
-        private List<Node> nodeList;
-
-        public Node item(int index) {
-            if ((index < 0) || (index >= nodeList.size()))
-                return null;
-            return (Node) nodeList.get(index);
-        }
-
-        public int getLength() {
-            return nodeList.size();
-        }
-
-        NodeListImpl(List<Node> nodeList) {
-            if (nodeList == null) {
-                this.nodeList = new ArrayList<Node>(0);
-            } else {
-                this.nodeList = nodeList;
-            }
-        }
+    public static void clearIndexes() {
+        IdIndex.clear();
     }
 
     public boolean hasTarget() {
         return (((xmlQuery != null) && xmlQuery.hasTarget()) || (flashQuery != null) && flashQuery.hasTarget());
     }
 
+    /**
+     * @return the XML query if the query consists of it only, or null.
+     */
+    XMLQueryImpl getCombinableXMLQuery() {
+        if ((flashQuery != null) && flashQuery.hasTarget())
+            return null;
+        if ((msaaQuery != null) && msaaQuery.hasTarget())
+            return null;
+        if ((xmlQuery == null) || !xmlQuery.hasTarget())
+            return null;
+        return xmlQuery;
+    }
+
     public NodeList query(Node base) {
-        List<Node> result = null;
+        return new LazyNodeList(iterate(base));
+    }
+
+    // The stages are chained lazily, so the nodes are evaluated as they are read.
+    private Iterator<Node> iterate(Node base) {
+        Iterator<Node> result = null;
         if ((xmlQuery != null) && (xmlQuery.hasTarget())) {
-            result = xmlQuery.query(base);
+            result = xmlQuery.iterate(base);
         }
         if ((flashQuery != null) && (flashQuery.hasTarget())) {
             if (result == null) {
-                result = flashQuery.query(base);
+                result = toIterator(flashQuery.query(base));
             } else {
-                List<Node> r = new ArrayList<Node>();
-                for (Iterator<Node> iter = result.iterator(); iter.hasNext();) {
-                    Node node = iter.next();
-                    if (!(node instanceof IFlashNode))
-                        continue;
-                    List<Node> list = flashQuery.query((IFlashNode)node);
-                    if (list != null)
-                        r.addAll(list);
-                }
-                result = r;
+                result = new LazyNodeList.Expander<Node>(result) {
+                    Iterator<Node> expand(Node node) {
+                        if (!(node instanceof IFlashNode))
+                            return null;
+                        return toIterator(flashQuery.query((IFlashNode) node));
+                    }
+                };
             }
         }
         if ((msaaQuery != null) && (msaaQuery.hasTarget())) {
             if (result == null) {
-                result = msaaQuery.query(base);
+                result = toIterator(msaaQuery.query(base));
             } else {
-                List<Node> r = new ArrayList<Node>();
-                for (Iterator<Node> iter = result.iterator(); iter.hasNext();) {
-                    Node node = iter.next();
-                    if (!(node instanceof IFlashNode))
-                        continue;
-                    List<Node> list = msaaQuery.query(((IFlashNode)node).getMSAA());
-                    if (list != null)
-                        r.addAll(list);
-                }
-                result = r;
+                result = new LazyNodeList.Expander<Node>(result) {
+                    Iterator<Node> expand(Node node) {
+                        if (!(node instanceof IFlashNode))
+                            return null;
+                        return toIterator(msaaQuery.query(((IFlashNode) node).getMSAA()));
+                    }
+                };
             }
         }
-        return new NodeListImpl(result);
+        return result;
+    }
+
+    private static Iterator<Node> toIterator(List<Node> list) {
+        if (list == null)
+            return null;
+        return list.iterator();
     }
 
     // --------------------------------------------------------------------------------
@@ -156,7 +157,9 @@ public class QueryImpl implements IQuery {
     public static final String Fennec_NODE_ELEMENT_NAME = "node";
     
     public static Node serializeQuery(Node domTarget, Node usrParent) {
-        List<Attr> attrs = calcAttrs(domTarget, usrParent);
+        List<Attr> attrs = calcAttrs(domTarget, usrParent, new XPathSerializer());
+        if (attrs == null)
+            return null;
         Node node = getNode(usrParent, attrs);
         if (node != null) {
             return node;
@@ -164,8 +167,66 @@ public class QueryImpl implements IQuery {
             return createNode(usrParent, attrs);
         }
     }
+
+    public static Node[] serializeQueries(Node[] domTargets, Node usrParent) {
+        XPathSerializer serializer = new XPathSerializer();
+        // The existing nodes are looked up by their attribute values instead
+        // of scanning the children for each target.
+        HashMap<String, List<Node>> index = new HashMap<String, List<Node>>();
+        for (Node n = usrParent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            addToIndex(index, n, false);
+        }
+        Node[] nodes = new Node[domTargets.length];
+        for (int i = 0; i < domTargets.length; i++) {
+            List<Attr> attrs = calcAttrs(domTargets[i], usrParent, serializer);
+            if (attrs == null)
+                continue;
+            Node node = null;
+            List<Node> candidates = index.get(getKey(attrs.get(0)));
+            if (candidates != null) {
+                for (Node c : candidates) {
+                    if (match(c, attrs)) {
+                        node = c;
+                        break;
+                    }
+                }
+            }
+            if (node == null) {
+                node = createNode(usrParent, attrs);
+                // A created node is the first child.
+                addToIndex(index, node, true);
+            }
+            nodes[i] = node;
+        }
+        return nodes;
+    }
+
+    private static String getKey(Node attr) {
+        return attr.getNamespaceURI() + " " + attr.getLocalName() + " " + attr.getNodeValue();
+    }
+
+    private static void addToIndex(HashMap<String, List<Node>> index, Node node, boolean first) {
+        NamedNodeMap map = node.getAttributes();
+        if (map == null)
+            return;
+        int len = map.getLength();
+        for (int i = 0; i < len; i++) {
+            String key = getKey(map.item(i));
+            List<Node> nodes = index.get(key);
+            if (nodes == null) {
+                nodes = new ArrayList<Node>(1);
+                index.put(key, nodes);
+            }
+            if (first) {
+                nodes.add(0, node);
+            } else {
+                nodes.add(node);
+            }
+        }
+    }
     
-    private static List<Attr> calcAttrs(Node domTarget, Node usrParent) {
+    // Returns null if the target cannot be located, e.g. it is detached.
+    private static List<Attr> calcAttrs(Node domTarget, Node usrParent, XPathSerializer serializer) {
         List<Attr> attrs = new ArrayList<Attr>(2);
         Node xmlNode;
         Attr flashAttr;
@@ -180,9 +241,11 @@ public class QueryImpl implements IQuery {
             xmlNode = domTarget;
             flashAttr = null;
         }
-        Attr xmlAttr = XMLQueryImpl.serializeQuery(xmlNode, usrParent);
+        Attr xmlAttr = XMLQueryImpl.serializeQuery(xmlNode, usrParent, serializer);
         if (xmlAttr != null) attrs.add(xmlAttr);
         if (flashAttr != null) attrs.add(flashAttr);
+        if (attrs.size() == 0)
+            return null;
 
         return attrs;
     }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.actf.ai.query.IQuery;
+import org.eclipse.actf.ai.query.IQueryMatcher;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+
+/**
+ * The location paths of the combined queries are merged into a trie of
+ * steps, and the trie is matched by walking only the children of the
+ * matching nodes.
+ */
+public class QueryMatcherImpl<T> implements IQueryMatcher<T> {
+    private static class Step {
+        // name -> position -> step
+        private HashMap<String, HashMap<Integer, Step>> children;
+
+        private ArrayList<Integer> targets;
+
+        Step getChild(String name, int position) {
+            if (children == null)
+                children = new HashMap<String, HashMap<Integer, Step>>();
+            HashMap<Integer, Step> byPosition = children.get(name);
+            if (byPosition == null) {
+                byPosition = new HashMap<Integer, Step>();
+                children.put(name, byPosition);
+            }
+            Integer key = Integer.valueOf(position);
+            Step step = byPosition.get(key);
+            if (step == null) {
+                step = new Step();
+                byPosition.put(key, step);
+            }
+            return step;
+        }
+
+        void addTarget(int keyIndex) {
+            if (targets == null)
+                targets = new ArrayList<Integer>(1);
+            targets.add(Integer.valueOf(keyIndex));
+        }
+    }
+
+    private final ArrayList<T> keys = new ArrayList<T>();
+
+    private final IdentityHashMap<T, T> added = new IdentityHashMap<T, T>();
+
+    // idrefs of the keys, in the order of the keys.
+    private final ArrayList<String[]> keyIds = new ArrayList<String[]>();
+
+    private final Step root = new Step();
+
+    private final HashMap<String, Step> idRoots = new HashMap<String, Step>();
+
+    public boolean add(IQuery query, T key) {
+        if (added.containsKey(key))
+            return true;
+        if (!(query instanceof QueryImpl))
+            return false;
+        XMLQueryImpl xmlQuery = ((QueryImpl) query).getCombinableXMLQuery();
+        if (xmlQuery == null)
+            return false;
+        SimpleLocationPath path = xmlQuery.getLocationPath();
+        if ((path == null) && xmlQuery.hasPath())
+            return false;
+
+        int keyIndex = keys.size();
+        keys.add(key);
+        added.put(key, key);
+        keyIds.add(xmlQuery.getIds());
+        if (path != null) {
+            Step step;
+            if (path.getId() == null) {
+                step = root;
+            } else {
+                step = idRoots.get(path.getId());
+                if (step == null) {
+                    step = new Step();
+                    idRoots.put(path.getId(), step);
+                }
+            }
+            int len = path.getLength();
+            for (int i = 0; i < len; i++) {
+                step = step.getChild(path.getName(i), path.getPosition(i));
+            }
+            step.addTarget(keyIndex);
+        }
+        return true;
+    }
+
+    private void visit(Node n, Step step, List<List<Node>> results) {
+        if (step.targets != null) {
+            for (Integer k : step.targets) {
+                results.get(k.intValue()).add(n);
+            }
+        }
+        if (step.children == null)
+            return;
+        HashMap<String, int[]> counts = new HashMap<String, int[]>();
+        for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+            if (c.getNodeType() != Node.ELEMENT_NODE)
+                continue;
+            String name = c.getNodeName();
+            HashMap<Integer, Step> byPosition = step.children.get(name);
+            if (byPosition == null)
+                continue;
+            int[] count = counts.get(name);
+            if (count == null) {
+                count = new int[1];
+                counts.put(name, count);
+            }
+            count[0]++;
+            Step next = byPosition.get(Integer.valueOf(count[0]));
+            if (next != null)
+                visit(c, next, results);
+            next = byPosition.get(Integer.valueOf(SimpleLocationPath.ANY));
+            if (next != null)
+                visit(c, next, results);
+        }
+    }
+
+    public Map<T, List<Node>> match(Node base) {
+        Document doc;
+        if (base instanceof Document) {
+            doc = (Document) base;
+        } else {
+            doc = base.getOwnerDocument();
+        }
+
+        int size = keys.size();
+        List<List<Node>> results = new ArrayList<List<Node>>(size);
+        HashMap<String, List<Node>> idCache = new HashMap<String, List<Node>>();
+        for (int i = 0; i < size; i++) {
+            ArrayList<Node> result = new ArrayList<Node>();
+            String[] ids = keyIds.get(i);
+            if ((ids != null) && (doc != null)) {
+                for (int j = 0; j < ids.length; j++) {
+                    List<Node> r = idCache.get(ids[j]);
+                    if (r == null) {
+                        r = XMLQueryImpl.getElementsById(doc, ids[j]);
+                        idCache.put(ids[j], r);
+                    }
+                    result.addAll(r);
+                }
+            }
+            results.add(result);
+        }
+
+        if (doc != null) {
+            visit(doc, root, results);
+            for (Map.Entry<String, Step> e : idRoots.entrySet()) {
+                Node n = XMLQueryImpl.getElementById(doc, e.getKey());
+                if (n != null)
+                    visit(n, e.getValue(), results);
+            }
+        }
+
+        IdentityHashMap<T, List<Node>> map = new IdentityHashMap<T, List<Node>>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys.get(i), results.get(i));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+
+/**
+ * A location path consisting of child steps with optional positions, such as
+ * "/HTML[1]/BODY[1]/DIV[3]" or "id("main")/UL[1]/LI". These are the paths
+ * created by the query serialization.
+ */
+class SimpleLocationPath {
+    static final int ANY = 0;
+
+    // null for the paths from the root.
+    private final String id;
+
+    private final String[] names;
+
+    private final int[] positions;
+
+    private SimpleLocationPath(String id, String[] names, int[] positions) {
+        this.id = id;
+        this.names = names;
+        this.positions = positions;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    int getLength() {
+        return names.length;
+    }
+
+    String getName(int i) {
+        return names[i];
+    }
+
+    int getPosition(int i) {
+        return positions[i];
+    }
+
+    /**
+     * Evaluate the path by walking the children of the nodes directly. The
+     * result is the same as the XPath evaluation of the path, and the nodes
+     * are found one by one as the iterator is read.
+     *
+     * @param base
+     *            the node whose document is queried.
+     * @return the iterator of the matched nodes in document order.
+     */
+    Iterator<Node> iterator(Node base) {
+        Document doc = (base instanceof Document) ? (Document) base : base.getOwnerDocument();
+        Node start;
+        if (doc == null) {
+            start = null;
+        } else if (id != null) {
+            start = XMLQueryImpl.getElementById(doc, id);
+        } else {
+            start = doc;
+        }
+        return new PathIterator(start);
+    }
+
+    /**
+     * Depth-first walk over the steps. The state of each step is kept in the
+     * arrays, so the walk can be resumed after each matched node.
+     */
+    private class PathIterator implements Iterator<Node> {
+        // contexts[i] is the node whose children are matched with the i-th step.
+        private final Node[] contexts = new Node[names.length + 1];
+
+        // The last child examined by each step, or null if not started.
+        private final Node[] cursors = new Node[names.length];
+
+        private final int[] counts = new int[names.length];
+
+        private final boolean[] exhausted = new boolean[names.length];
+
+        // The step to be resumed, or -1 if the walk has finished.
+        private int step;
+
+        private Node next;
+
+        PathIterator(Node start) {
+            if (start == null) {
+                step = -1;
+            } else if (names.length == 0) {
+                next = start;
+                step = -1;
+            } else {
+                contexts[0] = start;
+                step = 0;
+                next = advance();
+            }
+        }
+
+        private Node advance() {
+            int d = step;
+            while (d >= 0) {
+                Node c = null;
+                if (!exhausted[d]) {
+                    c = (cursors[d] == null) ? contexts[d].getFirstChild() : cursors[d].getNextSibling();
+                }
+                for (; c != null; c = c.getNextSibling()) {
+                    if ((c.getNodeType() != Node.ELEMENT_NODE) || !names[d].equals(c.getNodeName()))
+                        continue;
+                    if (positions[d] == ANY)
+                        break;
+                    if (++counts[d] == positions[d]) {
+                        exhausted[d] = true;
+                        break;
+                    }
+                }
+                if (c == null) {
+                    // Go back to the previous step.
+                    d--;
+                    continue;
+                }
+                cursors[d] = c;
+                if (d + 1 == names.length) {
+                    step = d;
+                    return c;
+                }
+                d++;
+                contexts[d] = c;
+                cursors[d] = null;
+                counts[d] = 0;
+                exhausted[d] = false;
+            }
+            step = -1;
+            return null;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Node next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            Node n = next;
+            next = (step >= 0) ? advance() : null;
+            return n;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || (c == '-') || (c == '_') || (c == '.');
+    }
+
+    /**
+     * @return the parsed path, or null if the path is not simple.
+     */
+    static SimpleLocationPath parse(String path) {
+        path = path.trim();
+        int len = path.length();
+        int i = 0;
+        String id = null;
+        if (path.startsWith("id(")) {
+            i = 3;
+            if (i >= len)
+                return null;
+            char quote = path.charAt(i);
+            if ((quote != '"') && (quote != '\''))
+                return null;
+            int end = path.indexOf(quote, i + 1);
+            if ((end < 0) || (end + 1 >= len) || (path.charAt(end + 1) != ')'))
+                return null;
+            id = path.substring(i + 1, end).trim();
+            // id() with several ids is not simple.
+            if ((id.length() == 0) || (id.indexOf(' ') >= 0) || (id.indexOf('\t') >= 0))
+                return null;
+            i = end + 2;
+        } else if (!path.startsWith("/")) {
+            return null;
+        }
+
+        ArrayList<String> names = new ArrayList<String>();
+        ArrayList<Integer> positions = new ArrayList<Integer>();
+        while (i < len) {
+            if (path.charAt(i) != '/')
+                return null;
+            i++;
+            int start = i;
+            while ((i < len) && isNameChar(path.charAt(i)))
+                i++;
+            if (start == i)
+                return null;
+            String name = path.substring(start, i);
+            int position = ANY;
+            if ((i < len) && (path.charAt(i) == '[')) {
+                i++;
+                int numStart = i;
+                while ((i < len) && Character.isDigit(path.charAt(i)))
+                    i++;
+                if ((numStart == i) || (i >= len) || (path.charAt(i) != ']'))
+                    return null;
+                try {
+                    position = Integer.parseInt(path.substring(numStart, i));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (position < 1)
+                    return null;
+                i++;
+            }
+            names.add(name);
+            positions.add(Integer.valueOf(position));
+        }
+        if ((id == null) && (names.size() == 0))
+            return null;
+
+        int[] pos = new int[positions.size()];
+        for (int j = 0; j < pos.length; j++) {
+            pos[j] = positions.get(j).intValue();
+        }
+        return new SimpleLocationPath(id, names.toArray(new String[names.size()]), pos);
+    }
+}
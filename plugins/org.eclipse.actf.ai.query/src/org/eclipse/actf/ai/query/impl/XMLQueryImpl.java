@@ -12,6 +12,8 @@
 package org.eclipse.actf.ai.query.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.actf.model.dom.dombycom.IDocumentEx;
@@ -28,51 +30,103 @@ import org.w3c.dom.NodeList;
 public class XMLQueryImpl {
     private static final String XML_QUERY_NS = "http://www.ibm.com/xmlns/prod/aiBrowser/fennec/xml-query";
     private static final XPathService xpathService = XPathServiceFactory.newService();
+
+    private static final XPathCache xpathCache = new XPathCache(xpathService);
     
     private final String[] ids;
 
     private Object compiledXPath;
 
-    private XMLQueryImpl(String[] ids, Object compiledXPath) {
+    private final SimpleLocationPath locationPath;
+
+    private XMLQueryImpl(String[] ids, Object compiledXPath, String path) {
         this.ids = ids;
         this.compiledXPath = compiledXPath;
+        if (compiledXPath != null) {
+            this.locationPath = SimpleLocationPath.parse(path);
+        } else {
+            this.locationPath = null;
+        }
     }
 
     public boolean hasTarget() {
         return (ids != null) || (compiledXPath != null);
     }
 
-    public List<Node> query(Node base) {
-        List<Node> result = null;
+    String[] getIds() {
+        return ids;
+    }
 
-        if (ids != null) {
-            if (result == null) {
-                result = new ArrayList<Node>();
-            }
-            Document doc = base.getOwnerDocument();
-            for (int i = 0; i < ids.length; i++) {
-                if (doc instanceof IDocumentEx) {
-                    List<Node> r = ((IDocumentEx) doc).getElementsByIdInAllFrames(ids[i]);
-                    result.addAll(r);
-                } else {
-                    Node n = doc.getElementById(ids[i]);
-                    if (n != null) result.add(n);
-                }
-            }
+    boolean hasPath() {
+        return compiledXPath != null;
+    }
 
+    /**
+     * @return the path of the query if it is a simple location path, or null.
+     */
+    SimpleLocationPath getLocationPath() {
+        return locationPath;
+    }
+
+    /**
+     * @return the elements with the id in all frames of the document. The
+     *         returned list must not be modified.
+     */
+    static List<Node> getElementsById(Document doc, String id) {
+        if (doc instanceof IDocumentEx) {
+            return IdIndex.get(doc, id);
         }
-        if (compiledXPath != null) {
+        List<Node> result = new ArrayList<Node>(1);
+        Node n = doc.getElementById(id);
+        if (n != null) result.add(n);
+        return result;
+    }
+
+    static Node getElementById(Document doc, String id) {
+        if (doc instanceof IDocumentEx) {
+            return IdIndex.getFirstInDocument(id, doc);
+        }
+        return doc.getElementById(id);
+    }
+
+    /**
+     * @return the iterator of the result, or null if the query has no ids and
+     *         the path matches nothing.
+     */
+    Iterator<Node> iterate(Node base) {
+        Iterator<Node> result = null;
+
+        if (locationPath != null) {
+            // The paths created by the serialization are walked directly.
+            Iterator<Node> found = locationPath.iterator(base);
+            if (found.hasNext()) {
+                result = found;
+            }
+        } else if (compiledXPath != null) {
             NodeList nl = xpathService.evalForNodeList(compiledXPath, base);
-            if (nl != null) {
-                int len = nl.getLength();
-                if (len > 0) {
-                    if (result == null) {
-                        result = new ArrayList<Node>(len);
-                    }
-                    for (int i = 0; i < len; i++) {
-                        result.add(nl.item(i));
-                    }
+            if ((nl != null) && (nl.item(0) != null)) {
+                result = LazyNodeList.iterator(nl);
+            }
+        }
+        if (ids != null) {
+            final Document doc = base.getOwnerDocument();
+            Iterator<Node> idResult = new LazyNodeList.Expander<String>(Arrays.asList(ids).iterator()) {
+                Iterator<Node> expand(String id) {
+                    return getElementsById(doc, id).iterator();
                 }
+            };
+            if (result != null) {
+                // The nodes of the ids precede the nodes of the path.
+                List<Iterator<Node>> parts = new ArrayList<Iterator<Node>>(2);
+                parts.add(idResult);
+                parts.add(result);
+                result = new LazyNodeList.Expander<Iterator<Node>>(parts.iterator()) {
+                    Iterator<Node> expand(Iterator<Node> part) {
+                        return part;
+                    }
+                };
+            } else {
+                result = idResult;
             }
         }
         return result;
@@ -89,17 +143,17 @@ public class XMLQueryImpl {
 
         Object compiled = null;
         if (path.length() > 0) {
-            compiled = xpathService.compile(path);
+            compiled = xpathCache.compile(path);
         }
-        return new XMLQueryImpl(ids, compiled);
+        return new XMLQueryImpl(ids, compiled, path);
     }
 
     // --------------------------------------------------------------------------------
     //    XPath Query Service
     // --------------------------------------------------------------------------------
     static XMLQueryImpl parseXPath(String xpath) {
-        Object compiled = xpathService.compile(xpath);
-        return new XMLQueryImpl(null, compiled);
+        Object compiled = xpathCache.compile(xpath);
+        return new XMLQueryImpl(null, compiled, xpath);
     }
 
     // --------------------------------------------------------------------------------
@@ -107,6 +161,14 @@ public class XMLQueryImpl {
     // --------------------------------------------------------------------------------
     
     static Attr serializeQuery(Node domNode, Node usrNode) {
+        return serializeQuery(domNode, usrNode, new XPathSerializer());
+    }
+
+    /**
+     * @param serializer
+     *            the serializer shared by the queries of a batch.
+     */
+    static Attr serializeQuery(Node domNode, Node usrNode, XPathSerializer serializer) {
         Document doc = usrNode.getOwnerDocument();
         String id = getID(domNode);
         if (id != null && id.length() > 0) {
@@ -114,7 +176,7 @@ public class XMLQueryImpl {
             attr.setNodeValue(id);
             return attr;
         }
-        String path = getXPath(domNode);
+        String path = serializer.getXPath(domNode);
         if (path != null && path.length() > 0) {
             Attr attr = doc.createAttributeNS(XML_QUERY_NS, "loc:path");
             attr.setNodeValue(path);
@@ -130,87 +192,17 @@ public class XMLQueryImpl {
         return e.getAttribute("id");
     }
 
-    private static String checkID(Node n) {
+    static String checkID(Node n) {
         if (!(n instanceof Element)) return null;
         Element e = (Element) n;
         String id = e.getAttribute("id");
         if (id == null) return null;
         Document doc = e.getOwnerDocument();
-        Node e2 = doc.getElementById(id);
+        Node e2 = getElementById(doc, id);
         if (!e.isSameNode(e2)) return null;
         // ':' is not allowed according to XML spec.
         if (id.indexOf(':') >= 0) return null;
         return id;
     }
     
-    private static String getXPath(Node node) {
-//      return XPathCreator.childPathSequence(n);
-        StringBuffer ret = new StringBuffer();
-        for (Node n = node; n != null; n = n.getParentNode()) {
-//          /* /HTML[1]/ -> ./ */
-//          if (node.getParentNode() instanceof Document) {
-//              ret.insert(0, '.');
-//              break;
-//          }
-            if (n instanceof Document) {
-                break;
-            }
-
-            String id = checkID(n);
-            // if (id != null) System.err.println("ID " + id + " is used");
-            if (id != null) {
-                ret.insert(0, "\")");
-                ret.insert(0, id);
-                ret.insert(0, "id(\"");
-                break;
-            }
-
-            String name = n.getNodeName();
-            int k = 1;
-            if (name.startsWith("#")) {
-//                ITreeItem a = item.getParent();
-//                Node p = node.getParentNode();
-//                if (a != null) {
-//                    for (ITreeItem c : a.getChildItems()) {
-//                        if (c == item)
-//                            break;
-//                        Object o = c.getBaseNode();
-//                        if (!(o instanceof Node))
-//                            continue;
-//                        Node n = (Node) o;
-//                        if (n.getParentNode() == p && n.getNodeName().equals(name))
-//                            ++k;
-//                    }
-//                }
-                /* currently text() is not supported */
-//              return calcPath(a); // query the parent node in the nav tree
-                continue;           // query the parent node in the DOM tree
-            }
-            else {
-                Node p = n.getParentNode();
-                if (p != null) {
-                    for (Node c = p.getFirstChild(); c != null; c = c.getNextSibling()) {
-                        if (c == n)
-                            break;
-                        if (c.getNodeName().equals(name))
-                            ++k;
-                    }
-                }
-            }
-            ret.insert(0, ']');
-            ret.insert(0, k);
-            ret.insert(0, '[');
-            ret.insert(0, getNodeNameForXPath(n.getNodeName()));
-            ret.insert(0, '/');
-        }
-        return ret.toString();
-    }
-
-    private static String getNodeNameForXPath(String s) {
-        if (s.startsWith("#"))
-            return s.substring(1) + "()";
-        else
-            return s;
-    }
-    
 }
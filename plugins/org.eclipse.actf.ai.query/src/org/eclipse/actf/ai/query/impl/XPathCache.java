@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.actf.ai.internal.query.QueryPlugin;
+import org.eclipse.actf.util.xpath.XPathService;
+
+
+/**
+ * Process-wide cache of the compiled XPath objects keyed by the expression
+ * string. The least recently used entry is removed when the cache is full.
+ * The compiled objects are shared by all the queries with the same
+ * expression and they are not thread-safe, so the queries must be evaluated
+ * on the UI thread, which is also required by the live DOM.
+ */
+class XPathCache {
+    private static final int MAX_ENTRIES = 512;
+
+    // The statistics are printed once per this number of the requests if the
+    // "debug/statistics" tracing option is enabled.
+    private static final int STATISTICS_INTERVAL = 1000;
+
+    private final XPathService xpathService;
+
+    private final LinkedHashMap<String, Object> cache = new LinkedHashMap<String, Object>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private int hits;
+
+    private int misses;
+
+    XPathCache(XPathService xpathService) {
+        this.xpathService = xpathService;
+    }
+
+    /**
+     * @return the compiled object of the expression. It is compiled only at
+     *         the first request, and it may be null if the compilation fails.
+     */
+    synchronized Object compile(String xpath) {
+        Object compiled = cache.get(xpath);
+        if (QueryPlugin.isStatisticsEnabled()) {
+            if (compiled != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            if ((hits + misses) % STATISTICS_INTERVAL == 0)
+                System.err.println("XPath cache statistics: " + getStatistics());
+        }
+        if (compiled != null)
+            return compiled;
+        compiled = xpathService.compile(xpath);
+        if (compiled != null)
+            cache.put(xpath, compiled);
+        return compiled;
+    }
+
+    /**
+     * @return the number of the entries, the hits and the misses of the cache.
+     */
+    synchronized String getStatistics() {
+        int total = hits + misses;
+        int rate = (total > 0) ? (hits * 100 / total) : 0;
+        return "entries=" + cache.size() + ", hits=" + hits + ", misses=" + misses + ", hitRate=" + rate + "%";
+    }
+}
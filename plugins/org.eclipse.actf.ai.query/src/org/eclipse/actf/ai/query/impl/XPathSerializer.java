@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2007 IBM Corporation and Others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.actf.ai.query.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+
+/**
+ * Creates the location paths of nodes, such as "/HTML[1]/BODY[1]/DIV[3]" or
+ * "id("main")/UL[1]". The sibling ordinals and the paths of the ancestors are
+ * memoized, so serializing a batch of nodes with one instance takes time
+ * linear in the size of the paths. An instance must not be used after the
+ * document is changed.
+ */
+class XPathSerializer {
+    /**
+     * A step of a path. The path of a node is the chain of the steps from
+     * the root, and the chains of siblings share the steps of their parent.
+     */
+    private static class Segment {
+        final Segment parent;
+
+        final String step;
+
+        final int length;
+
+        Segment(Segment parent, String step) {
+            this.parent = parent;
+            this.step = step;
+            this.length = (parent != null) ? (parent.length + 1) : 1;
+        }
+    }
+
+    private static final Segment ROOT = new Segment(null, "");
+
+    private final HashMap<Node, Segment> segments = new HashMap<Node, Segment>();
+
+    private final HashMap<Node, Integer> ordinals = new HashMap<Node, Integer>();
+
+    // The position among the same-name siblings, or null if the node is not
+    // found among the children of its parent. All siblings are numbered at
+    // the first request for one of them.
+    private Integer getOrdinal(Node n) {
+        Integer ordinal = ordinals.get(n);
+        if (ordinal != null)
+            return ordinal;
+        Node p = n.getParentNode();
+        if (p == null)
+            return null;
+        HashMap<String, int[]> counts = new HashMap<String, int[]>();
+        for (Node c = p.getFirstChild(); c != null; c = c.getNextSibling()) {
+            String name = c.getNodeName();
+            int[] count = counts.get(name);
+            if (count == null) {
+                count = new int[1];
+                counts.put(name, count);
+            }
+            ordinals.put(c, Integer.valueOf(++count[0]));
+        }
+        return ordinals.get(n);
+    }
+
+    private static String getNodeNameForXPath(String s) {
+        if (s.startsWith("#"))
+            return s.substring(1) + "()";
+        else
+            return s;
+    }
+
+    private Segment getSegment(Node node) {
+        // Go up to the nearest node whose path is known or starts the path.
+        ArrayList<Node> chain = new ArrayList<Node>();
+        Segment top = ROOT;
+        for (Node n = node; n != null; n = n.getParentNode()) {
+            if (n instanceof Document)
+                break;
+            Segment s = segments.get(n);
+            if (s != null) {
+                top = s;
+                break;
+            }
+            String id = XMLQueryImpl.checkID(n);
+            if (id != null) {
+                top = new Segment(null, "id(\"" + id + "\")");
+                segments.put(n, top);
+                break;
+            }
+            chain.add(n);
+        }
+
+        Segment seg = top;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            Node n = chain.get(i);
+            String name = n.getNodeName();
+            // currently text() is not supported, so the parent is queried.
+            if (!name.startsWith("#")) {
+                Integer ordinal = getOrdinal(n);
+                if (ordinal == null)
+                    return null;
+                String step = "/" + getNodeNameForXPath(name) + "[" + ordinal + "]";
+                seg = new Segment(seg, step);
+            }
+            segments.put(n, seg);
+        }
+        return seg;
+    }
+
+    /**
+     * @return the path of the node, or null if the position of the node or
+     *         one of its ancestors cannot be determined.
+     */
+    String getXPath(Node node) {
+        Segment seg = getSegment(node);
+        if (seg == null)
+            return null;
+        String[] steps = new String[seg.length];
+        int i = steps.length;
+        for (Segment s = seg; s != null; s = s.parent) {
+            steps[--i] = s.step;
+        }
+        StringBuffer ret = new StringBuffer();
+        for (i = 0; i < steps.length; i++) {
+            ret.append(steps[i]);
+        }
+        return ret.toString();
+    }
+}